@@ -0,0 +1,91 @@
+package com.rsmartin.arquitecturamvvm.benchmark;
+
+import android.util.Log;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Observer;
+import androidx.test.InstrumentationRegistry;
+import androidx.test.runner.AndroidJUnit4;
+
+import com.rsmartin.arquitecturamvvm.model.Repo;
+import com.rsmartin.arquitecturamvvm.repository.Resource;
+import com.rsmartin.arquitecturamvvm.utils.DistinctLiveData;
+import com.rsmartin.arquitecturamvvm.utils.LatencyRecorder;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Lo que cuesta en el hilo principal cada emision de Room que pasa por DistinctLiveData,
+ * con listas grandes de repos dentro de un Resource:
+ *
+ * - equal: Room vuelve a emitir las mismas filas en otra lista (hash + equals, no se emite).
+ * - changed: cambia el ultimo repo (hash distinto, se emite).
+ *
+ * Los resultados salen en logcat.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DistinctLiveDataBenchmark {
+
+    private static final String TAG = "DistinctLiveDataBench";
+    private static final int EMISSIONS = 200;
+    private static final int[] SIZES = {100, 1000, 5000};
+
+    @Test
+    public void equalLists() {
+        for(int size : SIZES){
+            int[] emitted = new int[1];
+            LatencyRecorder latencies = run(size, false, emitted);
+            assertEquals(1, emitted[0]);
+            Log.i(TAG, "equal, " + size + " repos: " + latencies.percentiles());
+        }
+    }
+
+    @Test
+    public void changedLists() {
+        for(int size : SIZES){
+            int[] emitted = new int[1];
+            LatencyRecorder latencies = run(size, true, emitted);
+            assertEquals(EMISSIONS + 1, emitted[0]);
+            Log.i(TAG, "changed, " + size + " repos: " + latencies.percentiles());
+        }
+    }
+
+    private LatencyRecorder run(int size, boolean change, int[] emitted) {
+        LatencyRecorder latencies = new LatencyRecorder(EMISSIONS);
+        List<List<Repo>> lists = new ArrayList<>(EMISSIONS + 1);
+        for(int i = 0; i <= EMISSIONS; i++){
+            lists.add(repos(size, change ? i : 0));
+        }
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            MutableLiveData<Resource<List<Repo>>> source = new MutableLiveData<>();
+            LiveData<Resource<List<Repo>>> distinct = DistinctLiveData.create(source);
+            Observer<Resource<List<Repo>>> observer = value -> emitted[0]++;
+            distinct.observeForever(observer);
+            source.setValue(Resource.success(lists.get(0)));
+            for(int i = 1; i <= EMISSIONS; i++){
+                Resource<List<Repo>> value = Resource.success(lists.get(i));
+                long start = System.nanoTime();
+                source.setValue(value);
+                latencies.record(System.nanoTime() - start);
+            }
+            distinct.removeObserver(observer);
+        });
+        return latencies;
+    }
+
+    private static List<Repo> repos(int size, int lastStars) {
+        List<Repo> repos = new ArrayList<>(size);
+        for(int i = 0; i < size; i++){
+            repos.add(new Repo(i, "repo" + i, "owner/repo" + i, "description " + i,
+                    i == size - 1 ? lastStars : i, new Repo.Owner("owner", null)));
+        }
+        return repos;
+    }
+}
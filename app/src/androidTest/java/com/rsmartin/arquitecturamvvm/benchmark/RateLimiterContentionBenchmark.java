@@ -0,0 +1,105 @@
+package com.rsmartin.arquitecturamvvm.benchmark;
+
+import android.os.SystemClock;
+import android.util.ArrayMap;
+import android.util.Log;
+
+import androidx.test.runner.AndroidJUnit4;
+
+import com.rsmartin.arquitecturamvvm.utils.RateLimiter;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Varios hilos llamando a shouldFetch a la vez: RateLimiter contra la version anterior
+ * (ArrayMap + synchronized), con pocas claves repetidas y con muchas claves distintas.
+ * Los resultados salen en logcat.
+ */
+@RunWith(AndroidJUnit4.class)
+public class RateLimiterContentionBenchmark {
+
+    private static final String TAG = "RateLimiterBenchmark";
+    private static final int THREADS = 4;
+    private static final int CALLS_PER_THREAD = 200_000;
+
+    @Test
+    public void fewHotKeys() throws InterruptedException {
+        compare(16);
+    }
+
+    @Test
+    public void manyKeys() throws InterruptedException {
+        compare(20_000);
+    }
+
+    private void compare(int keys) throws InterruptedException {
+        RateLimiter<String> current = new RateLimiter<>(10, TimeUnit.MINUTES);
+        LegacyRateLimiter<String> legacy = new LegacyRateLimiter<>(10, TimeUnit.MINUTES);
+        String[] keyPool = new String[keys];
+        for(int i = 0; i < keys; i++){
+            keyPool[i] = "owner" + i;
+        }
+
+        long legacyNanos = run(keyPool, legacy::shouldFetch);
+        long currentNanos = run(keyPool, current::shouldFetch);
+
+        long calls = (long) THREADS * CALLS_PER_THREAD;
+        Log.i(TAG, String.format("%d keys, %d threads: synchronized ArrayMap %.1f ns/call, RateLimiter %.1f ns/call",
+                keys, THREADS, (double) legacyNanos / calls, (double) currentNanos / calls));
+    }
+
+    private long run(String[] keyPool, ShouldFetch limiter) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(THREADS);
+        for(int t = 0; t < THREADS; t++){
+            int seed = t;
+            new Thread(() -> {
+                try{
+                    start.await();
+                    for(int i = 0; i < CALLS_PER_THREAD; i++){
+                        limiter.shouldFetch(keyPool[(i * 31 + seed) % keyPool.length]);
+                    }
+                } catch (InterruptedException ignored){
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        assertTrue(done.await(2, TimeUnit.MINUTES));
+        return System.nanoTime() - begin;
+    }
+
+    private interface ShouldFetch {
+        boolean shouldFetch(String key);
+    }
+
+    /**
+     * El RateLimiter tal y como estaba antes, para comparar.
+     */
+    private static class LegacyRateLimiter<KEY> {
+        private final ArrayMap<KEY, Long> timestamps = new ArrayMap<>();
+        private final long timeout;
+
+        LegacyRateLimiter(int timeout, TimeUnit timeUnit){
+            this.timeout = timeUnit.toMillis(timeout);
+        }
+
+        synchronized boolean shouldFetch(KEY key){
+            Long lastFetched = timestamps.get(key);
+            long now = SystemClock.uptimeMillis();
+            if(lastFetched == null || now - lastFetched > timeout){
+                timestamps.put(key, now);
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.rsmartin.arquitecturamvvm.benchmark;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.room.RoomDatabase;
+import androidx.test.InstrumentationRegistry;
+import androidx.test.runner.AndroidJUnit4;
+
+import com.rsmartin.arquitecturamvvm.db.GitHubDb;
+import com.rsmartin.arquitecturamvvm.model.Repo;
+import com.rsmartin.arquitecturamvvm.model.RepoSearchResult;
+import com.rsmartin.arquitecturamvvm.utils.LatencyRecorder;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Latencia de lectura mientras otro hilo escribe transacciones grandes sin parar.
+ *
+ * - single: como antes, lecturas y escrituras comparten el unico hilo de diskIO.
+ * - split: las escrituras en su hilo y las lecturas en un pool de 2, con la base de datos en WAL.
+ *
+ * Los resultados salen en logcat.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ReadWriteSplitBenchmark {
+
+    private static final String TAG = "ReadWriteSplitBenchmark";
+    private static final String DB_NAME = "read-write-benchmark.db";
+    private static final int READS = 300;
+    private static final int REPOS_PER_WRITE = 200;
+
+    private GitHubDb db;
+
+    @After
+    public void tearDown() {
+        if(db != null){
+            db.close();
+        }
+        InstrumentationRegistry.getTargetContext().deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void singleExecutor() throws InterruptedException {
+        open(RoomDatabase.JournalMode.TRUNCATE);
+        ExecutorService diskIO = Executors.newSingleThreadExecutor();
+        LatencyRecorder reads = run(diskIO, diskIO);
+        Log.i(TAG, "single diskIO, rollback journal: read " + reads.percentiles());
+    }
+
+    @Test
+    public void splitWithWal() throws InterruptedException {
+        open(RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING);
+        LatencyRecorder reads = run(Executors.newSingleThreadExecutor(), Executors.newFixedThreadPool(2));
+        Log.i(TAG, "writer + read pool, WAL: read " + reads.percentiles());
+    }
+
+    private void open(RoomDatabase.JournalMode journalMode) {
+        Context context = InstrumentationRegistry.getTargetContext();
+        context.deleteDatabase(DB_NAME);
+        db = Room.databaseBuilder(context, GitHubDb.class, DB_NAME)
+                .setJournalMode(journalMode)
+                .build();
+        db.repoDao().insertSearchPage(new RepoSearchResult("benchmark", 1, null),
+                repos(0, 1), true);
+    }
+
+    private LatencyRecorder run(ExecutorService writer, ExecutorService readers) throws InterruptedException {
+        AtomicBoolean writing = new AtomicBoolean(true);
+        Runnable write = new Runnable() {
+            private int round;
+
+            @Override
+            public void run() {
+                if(!writing.get()){
+                    return;
+                }
+                List<Repo> repos = repos(++round * REPOS_PER_WRITE, REPOS_PER_WRITE);
+                db.runInTransaction(() -> db.repoDao().insertRepos(repos));
+                try{
+                    writer.execute(this);
+                } catch (RejectedExecutionException ignored){
+                    //Ya hemos terminado de medir
+                }
+            }
+        };
+        writer.execute(write);
+
+        LatencyRecorder latencies = new LatencyRecorder(READS);
+        CountDownLatch done = new CountDownLatch(READS);
+        for(int i = 0; i < READS; i++){
+            long submitted = System.nanoTime();
+            readers.execute(() -> {
+                db.repoDao().findSearchResult("benchmark");
+                latencies.record(System.nanoTime() - submitted);
+                done.countDown();
+            });
+            Thread.sleep(2);
+        }
+        assertTrue(done.await(2, TimeUnit.MINUTES));
+        writing.set(false);
+        writer.shutdown();
+        readers.shutdown();
+        writer.awaitTermination(1, TimeUnit.MINUTES);
+        return latencies;
+    }
+
+    private static List<Repo> repos(int from, int count) {
+        List<Repo> repos = new ArrayList<>(count);
+        for(int i = from; i < from + count; i++){
+            repos.add(new Repo(i, "repo" + i, "owner/repo" + i, "description " + i, i,
+                    new Repo.Owner("owner", null)));
+        }
+        return repos;
+    }
+}
@@ -0,0 +1,154 @@
+package com.rsmartin.arquitecturamvvm.benchmark;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+import android.util.SparseIntArray;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.test.InstrumentationRegistry;
+import androidx.test.runner.AndroidJUnit4;
+
+import com.rsmartin.arquitecturamvvm.db.GitHubDb;
+import com.rsmartin.arquitecturamvvm.model.Repo;
+import com.rsmartin.arquitecturamvvm.model.RepoSearchResult;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compara el antiguo RepoDao.loadOrdered (IN (:repoIds) + Collections.sort en memoria)
+ * con el orden por posicion en SQL (JOIN con search_result_item) y con una ventana de 30.
+ * El IN antiguo no pasa del limite de variables de SQLite (999), asi que aqui se trocea.
+ * Los resultados salen en logcat. La version JMH (sin Room) es SearchOrderingBenchmark.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SearchOrderingDeviceBenchmark {
+
+    private static final String TAG = "SearchOrderingBench";
+    private static final String QUERY = "benchmark";
+    private static final int MAX_VARIABLES = 999;
+    private static final int WINDOW = 30;
+    private static final int ROUNDS = 5;
+
+    private GitHubDb db;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getTargetContext();
+        db = Room.inMemoryDatabaseBuilder(context, GitHubDb.class).build();
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void orderedLoad1k() {
+        run(1_000);
+    }
+
+    @Test
+    public void orderedLoad10k() {
+        run(10_000);
+    }
+
+    @Test
+    public void orderedLoad50k() {
+        run(50_000);
+    }
+
+    private void run(int size) {
+        List<Integer> ids = populate(size);
+
+        long legacy = 0, join = 0, window = 0;
+        for(int round = 0; round < ROUNDS; round++){
+            long start = System.nanoTime();
+            assertEquals(size, legacyLoadOrdered(ids).size());
+            legacy += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            assertEquals(size, query("SELECT Repo.* FROM search_result_item INNER JOIN Repo "
+                    + "ON Repo.id = search_result_item.repo_id WHERE search_result_item.query = ? "
+                    + "ORDER BY search_result_item.position ASC", QUERY).size());
+            join += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            assertEquals(WINDOW, query("SELECT Repo.* FROM search_result_item INNER JOIN Repo "
+                    + "ON Repo.id = search_result_item.repo_id WHERE search_result_item.query = ? "
+                    + "AND search_result_item.position >= ? AND search_result_item.position < ? "
+                    + "ORDER BY search_result_item.position ASC", QUERY, size / 2, size / 2 + WINDOW).size());
+            window += System.nanoTime() - start;
+        }
+        Log.i(TAG, String.format("%d ids: IN + sort %.2f ms, JOIN %.2f ms, window(%d) %.3f ms",
+                size, legacy / 1e6 / ROUNDS, join / 1e6 / ROUNDS, WINDOW, window / 1e6 / ROUNDS));
+    }
+
+    private List<Integer> populate(int size) {
+        List<Repo> repos = new ArrayList<>(size);
+        List<Integer> ids = new ArrayList<>(size);
+        for(int i = 0; i < size; i++){
+            repos.add(new Repo(i, "repo" + i, "owner/repo" + i, "description " + i, i % 1000,
+                    new Repo.Owner("owner" + (i % 100), null)));
+            ids.add(i);
+        }
+        Collections.shuffle(repos); //Que el orden de la busqueda no sea el de insercion
+        db.repoDao().insertSearchPage(new RepoSearchResult(QUERY, size, null), repos, true);
+        Collections.shuffle(ids);
+        return ids;
+    }
+
+    /**
+     * Lo que hacia RepoDao.loadOrdered, troceando el IN para que SQLite lo acepte.
+     */
+    private List<Repo> legacyLoadOrdered(List<Integer> repoIds) {
+        SparseIntArray order = new SparseIntArray();
+        int index = 0;
+        for(Integer repoId : repoIds){
+            order.put(repoId, index++);
+        }
+        List<Repo> repos = new ArrayList<>(repoIds.size());
+        for(int from = 0; from < repoIds.size(); from += MAX_VARIABLES){
+            List<Integer> chunk = repoIds.subList(from, Math.min(repoIds.size(), from + MAX_VARIABLES));
+            StringBuilder sql = new StringBuilder("SELECT * FROM Repo WHERE id in(");
+            Object[] args = new Object[chunk.size()];
+            for(int i = 0; i < chunk.size(); i++){
+                sql.append(i == 0 ? "?" : ",?");
+                args[i] = chunk.get(i);
+            }
+            sql.append(")");
+            repos.addAll(query(sql.toString(), args));
+        }
+        Collections.sort(repos, (repo, t1) -> order.get(repo.id) - order.get(t1.id));
+        return repos;
+    }
+
+    private List<Repo> query(String sql, Object... args) {
+        List<Repo> repos = new ArrayList<>();
+        try(Cursor cursor = db.query(new SimpleSQLiteQuery(sql, args))){
+            int id = cursor.getColumnIndexOrThrow("id");
+            int name = cursor.getColumnIndexOrThrow("name");
+            int fullName = cursor.getColumnIndexOrThrow("fullName");
+            int description = cursor.getColumnIndexOrThrow("description");
+            int stars = cursor.getColumnIndexOrThrow("stars");
+            int login = cursor.getColumnIndexOrThrow("owner_login");
+            int url = cursor.getColumnIndexOrThrow("owner_url");
+            while(cursor.moveToNext()){
+                repos.add(new Repo(cursor.getInt(id), cursor.getString(name), cursor.getString(fullName),
+                        cursor.getString(description), cursor.getInt(stars),
+                        new Repo.Owner(cursor.getString(login), cursor.getString(url))));
+            }
+        }
+        return repos;
+    }
+}
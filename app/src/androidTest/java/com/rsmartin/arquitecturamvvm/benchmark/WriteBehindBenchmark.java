@@ -0,0 +1,96 @@
+package com.rsmartin.arquitecturamvvm.benchmark;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.test.InstrumentationRegistry;
+import androidx.test.runner.AndroidJUnit4;
+
+import com.rsmartin.arquitecturamvvm.AppExecutors;
+import com.rsmartin.arquitecturamvvm.db.GitHubDb;
+import com.rsmartin.arquitecturamvvm.model.User;
+import com.rsmartin.arquitecturamvvm.repository.WriteBehindQueue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compara las escrituras de saveCallResult de una en una (una transaccion por recurso)
+ * con las mismas escrituras pasando por WriteBehindQueue. Usa una base de datos en disco
+ * para que cuente el fsync de cada commit. Los resultados salen en logcat.
+ */
+@RunWith(AndroidJUnit4.class)
+public class WriteBehindBenchmark {
+
+    private static final String TAG = "WriteBehindBenchmark";
+    private static final String DB_NAME = "write-behind-benchmark.db";
+    private static final int SAVES = 500;
+
+    private GitHubDb db;
+    private AppExecutors appExecutors;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getTargetContext();
+        context.deleteDatabase(DB_NAME);
+        db = Room.databaseBuilder(context, GitHubDb.class, DB_NAME).build();
+        Executor direct = Runnable::run;
+        appExecutors = new AppExecutors(Executors.newSingleThreadExecutor(), direct, direct);
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+        InstrumentationRegistry.getTargetContext().deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void commitsPerSecond() throws InterruptedException {
+        CountDownLatch single = new CountDownLatch(SAVES);
+        long start = System.nanoTime();
+        for(int i = 0; i < SAVES; i++){
+            User user = user("single", i);
+            appExecutors.diskIO().execute(() -> {
+                db.beginTransaction();
+                try{
+                    db.userDao().insert(user);
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+                single.countDown();
+            });
+        }
+        assertTrue(single.await(2, TimeUnit.MINUTES));
+        long singleNanos = System.nanoTime() - start;
+
+        WriteBehindQueue queue = new WriteBehindQueue(db, appExecutors, 20, 32);
+        CountDownLatch batched = new CountDownLatch(SAVES);
+        start = System.nanoTime();
+        for(int i = 0; i < SAVES; i++){
+            User user = user("batched", i);
+            queue.enqueue(() -> db.userDao().insert(user), null, error -> batched.countDown());
+        }
+        assertTrue(batched.await(2, TimeUnit.MINUTES));
+        long batchedNanos = System.nanoTime() - start;
+
+        Log.i(TAG, String.format("one transaction per save: %.1f saves/s",
+                SAVES / (singleNanos / 1e9)));
+        Log.i(TAG, String.format("write-behind batches:     %.1f saves/s",
+                SAVES / (batchedNanos / 1e9)));
+    }
+
+    private static User user(String prefix, int i) {
+        return new User(prefix + i, null, "name " + i, null, null, null);
+    }
+}
@@ -3,35 +3,81 @@ package com.rsmartin.arquitecturamvvm;
 import android.os.Handler;
 import android.os.Looper;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+/**
+ * diskIO es el unico hilo que escribe en Room (transacciones en serie).
+ * diskRead es un pool pequeño solo para leer; con la base de datos en WAL las lecturas
+ * no esperan a que terminen las escrituras.
+ * scheduler es el unico ScheduledExecutorService de la app: para lo que tiene que esperar
+ * (ventanas, pausas, tareas periodicas) y luego seguir en otro executor.
+ */
 @Singleton
 public class AppExecutors {
 
     private final Executor diskIO;
+    private final Executor diskRead;
     private final Executor networkIO;
     private final Executor mainThread;
+    private final ScheduledExecutorService scheduler;
 
-    public AppExecutors(Executor diskIO, Executor networkIO, Executor mainThread) {
+    public AppExecutors(Executor diskIO, Executor diskRead, Executor networkIO, Executor mainThread,
+                        ScheduledExecutorService scheduler) {
         this.diskIO = diskIO;
+        this.diskRead = diskRead;
         this.networkIO = networkIO;
         this.mainThread = mainThread;
+        this.scheduler = scheduler;
+    }
+
+    public AppExecutors(Executor diskIO, Executor diskRead, Executor networkIO, Executor mainThread) {
+        this(diskIO, diskRead, networkIO, mainThread, new InstrumentedScheduler(ExecutorConfig.scheduler()));
+    }
+
+    public AppExecutors(Executor diskIO, Executor networkIO, Executor mainThread) {
+        this(diskIO, diskIO, networkIO, mainThread);
     }
 
     @Inject
     public AppExecutors(){
-        this(Executors.newSingleThreadExecutor(), Executors.newFixedThreadPool(3),
-                new MainThreadExecutor());
+        this(ExecutorConfig.diskIO(), ExecutorConfig.diskRead(), ExecutorConfig.networkIO());
+    }
+
+    public AppExecutors(ExecutorConfig diskIO, ExecutorConfig diskRead, ExecutorConfig networkIO){
+        this(new InstrumentedExecutor(diskIO), new InstrumentedExecutor(diskRead),
+                new InstrumentedExecutor(networkIO), new MainThreadExecutor());
+    }
+
+    /**
+     * Metricas de los executors que las tienen (los creados desde ExecutorConfig).
+     */
+    public List<InstrumentedExecutor.Snapshot> metrics(){
+        List<InstrumentedExecutor.Snapshot> snapshots = new ArrayList<>();
+        for(Executor executor : new Executor[]{diskIO, diskRead, networkIO}){
+            if(executor instanceof InstrumentedExecutor){
+                snapshots.add(((InstrumentedExecutor) executor).snapshot());
+            }
+        }
+        if(scheduler instanceof InstrumentedScheduler){
+            snapshots.add(((InstrumentedScheduler) scheduler).snapshot());
+        }
+        return snapshots;
     }
 
     public Executor diskIO() {
         return diskIO;
     }
 
+    public Executor diskRead() {
+        return diskRead;
+    }
+
     public Executor networkIO() {
         return networkIO;
     }
@@ -40,6 +86,10 @@ public class AppExecutors {
         return mainThread;
     }
 
+    public ScheduledExecutorService scheduler() {
+        return scheduler;
+    }
+
     private static class MainThreadExecutor implements Executor{
         private Handler mainThreadHandler = new Handler(Looper.myLooper());
 
@@ -0,0 +1,55 @@
+package com.rsmartin.arquitecturamvvm;
+
+import android.os.Process;
+
+/**
+ * Configuracion de cada executor de AppExecutors. Los valores por defecto salen de BuildConfig
+ * (ver buildConfigField en app/build.gradle), asi que se pueden cambiar sin tocar codigo.
+ */
+public class ExecutorConfig {
+
+    public enum RejectionPolicy {
+        ABORT,          //Lanza RejectedExecutionException
+        CALLER_RUNS,    //Lo ejecuta el hilo que lo ha mandado
+        DISCARD_OLDEST  //Tira la tarea mas antigua de la cola
+    }
+
+    public final String name;
+    public final int threads;
+    public final int queueCapacity; //0 = sin limite
+    public final RejectionPolicy rejectionPolicy;
+    public final int threadPriority; //android.os.Process.THREAD_PRIORITY_*
+
+    public ExecutorConfig(String name, int threads, int queueCapacity,
+                          RejectionPolicy rejectionPolicy, int threadPriority) {
+        this.name = name;
+        this.threads = threads;
+        this.queueCapacity = queueCapacity;
+        this.rejectionPolicy = rejectionPolicy;
+        this.threadPriority = threadPriority;
+    }
+
+    public static ExecutorConfig diskIO(){
+        return new ExecutorConfig("diskIO", BuildConfig.DISK_IO_THREADS, BuildConfig.DISK_IO_QUEUE,
+                RejectionPolicy.valueOf(BuildConfig.DISK_IO_REJECTION), Process.THREAD_PRIORITY_BACKGROUND);
+    }
+
+    public static ExecutorConfig diskRead(){
+        return new ExecutorConfig("diskRead", BuildConfig.DISK_READ_THREADS, BuildConfig.DISK_READ_QUEUE,
+                RejectionPolicy.valueOf(BuildConfig.DISK_READ_REJECTION), Process.THREAD_PRIORITY_BACKGROUND);
+    }
+
+    public static ExecutorConfig networkIO(){
+        return new ExecutorConfig("networkIO", BuildConfig.NETWORK_IO_THREADS, BuildConfig.NETWORK_IO_QUEUE,
+                RejectionPolicy.valueOf(BuildConfig.NETWORK_IO_REJECTION), Process.THREAD_PRIORITY_BACKGROUND);
+    }
+
+    /**
+     * Para InstrumentedScheduler: la cola de un ScheduledThreadPoolExecutor no tiene limite,
+     * asi que solo cuentan threads y la prioridad.
+     */
+    public static ExecutorConfig scheduler(){
+        return new ExecutorConfig("scheduler", BuildConfig.SCHEDULER_THREADS, 0,
+                RejectionPolicy.ABORT, Process.THREAD_PRIORITY_BACKGROUND);
+    }
+}
@@ -0,0 +1,28 @@
+package com.rsmartin.arquitecturamvvm;
+
+import android.app.Application;
+
+import com.rsmartin.arquitecturamvvm.di.DaggerAppComponent;
+import com.rsmartin.arquitecturamvvm.repository.CacheEvictor;
+
+import javax.inject.Inject;
+
+/**
+ * Crea el grafo de Dagger y arranca lo que tiene que correr mientras viva el proceso,
+ * aunque no se abra ninguna pantalla que use la capa de datos (el desalojo de CacheEvictor).
+ */
+public class GithubApp extends Application {
+
+    @Inject
+    CacheEvictor cacheEvictor;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        DaggerAppComponent.builder()
+                .application(this)
+                .build()
+                .inject(this);
+        cacheEvictor.start();
+    }
+}
@@ -0,0 +1,150 @@
+package com.rsmartin.arquitecturamvvm;
+
+import android.os.Process;
+
+import com.rsmartin.arquitecturamvvm.utils.LatencyRecorder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ThreadPoolExecutor que se crea a partir de un ExecutorConfig y mide lo que pasa dentro:
+ * cuantas tareas esperan en la cola, cuanto esperan, cuanto tardan en ejecutarse y
+ * cuantas se rechazan. Con snapshot() sabemos si el cuello de botella es el disco o la red.
+ */
+public class InstrumentedExecutor extends ThreadPoolExecutor {
+
+    private static final int SAMPLES = 1024;
+
+    private final String name;
+    private final LatencyRecorder waitTimes = new LatencyRecorder(SAMPLES);
+    private final LatencyRecorder runTimes = new LatencyRecorder(SAMPLES);
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final AtomicLong rejected;
+
+    public InstrumentedExecutor(ExecutorConfig config) {
+        this(config, new AtomicLong());
+    }
+
+    private InstrumentedExecutor(ExecutorConfig config, AtomicLong rejected) {
+        super(config.threads, config.threads, 0L, TimeUnit.MILLISECONDS,
+                queueFor(config), threadFactory(config, false), countingHandler(config, rejected));
+        this.name = config.name;
+        this.rejected = rejected;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        super.execute(new TimedRunnable(command));
+        int depth = getQueue().size();
+        int max;
+        while (depth > (max = maxQueueDepth.get()) && !maxQueueDepth.compareAndSet(max, depth)){
+            //Otro hilo lo ha cambiado, reintentamos
+        }
+    }
+
+    public Snapshot snapshot(){
+        return new Snapshot(name, getPoolSize(), getActiveCount(), getQueue().size(),
+                maxQueueDepth.get(), getCompletedTaskCount(), rejected.get(),
+                waitTimes.percentiles(), runTimes.percentiles());
+    }
+
+    private static BlockingQueue<Runnable> queueFor(ExecutorConfig config){
+        return config.queueCapacity > 0
+                ? new ArrayBlockingQueue<>(config.queueCapacity)
+                : new LinkedBlockingQueue<>();
+    }
+
+    static ThreadFactory threadFactory(ExecutorConfig config, boolean daemon){
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(() -> {
+                Process.setThreadPriority(config.threadPriority);
+                runnable.run();
+            }, config.name + "-" + counter.incrementAndGet());
+            thread.setDaemon(daemon);
+            return thread;
+        };
+    }
+
+    private static RejectedExecutionHandler countingHandler(ExecutorConfig config, AtomicLong rejected){
+        RejectedExecutionHandler policy;
+        switch (config.rejectionPolicy){
+            case CALLER_RUNS:
+                policy = new CallerRunsPolicy();
+                break;
+            case DISCARD_OLDEST:
+                policy = new DiscardOldestPolicy();
+                break;
+            default:
+                policy = new AbortPolicy();
+        }
+        return (runnable, executor) -> {
+            rejected.incrementAndGet();
+            policy.rejectedExecution(runnable, executor);
+        };
+    }
+
+    private class TimedRunnable implements Runnable {
+        private final Runnable command;
+        private final long enqueuedAt = System.nanoTime();
+
+        TimedRunnable(Runnable command) {
+            this.command = command;
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            waitTimes.record(start - enqueuedAt);
+            try{
+                command.run();
+            } finally {
+                runTimes.record(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Foto de las metricas de un executor en un momento dado.
+     */
+    public static class Snapshot {
+        public final String name;
+        public final int poolSize;
+        public final int activeThreads;
+        public final int queueDepth;
+        public final int maxQueueDepth;
+        public final long completed;
+        public final long rejected;
+        public final LatencyRecorder.Percentiles waitTime;
+        public final LatencyRecorder.Percentiles runTime;
+
+        public Snapshot(String name, int poolSize, int activeThreads, int queueDepth, int maxQueueDepth,
+                        long completed, long rejected, LatencyRecorder.Percentiles waitTime,
+                        LatencyRecorder.Percentiles runTime) {
+            this.name = name;
+            this.poolSize = poolSize;
+            this.activeThreads = activeThreads;
+            this.queueDepth = queueDepth;
+            this.maxQueueDepth = maxQueueDepth;
+            this.completed = completed;
+            this.rejected = rejected;
+            this.waitTime = waitTime;
+            this.runTime = runTime;
+        }
+
+        @Override
+        public String toString() {
+            return name + ": threads=" + activeThreads + "/" + poolSize + " queue=" + queueDepth
+                    + " (max " + maxQueueDepth + ") completed=" + completed + " rejected=" + rejected
+                    + " wait[" + waitTime + "] run[" + runTime + "]";
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.rsmartin.arquitecturamvvm;
+
+import com.rsmartin.arquitecturamvvm.utils.LatencyRecorder;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * El ScheduledExecutorService compartido de AppExecutors, creado desde un ExecutorConfig.
+ * Sus tareas solo esperan y pasan el trabajo a diskIO / networkIO, asi que con un hilo basta.
+ *
+ * Los hilos son daemon y con nombre. snapshot() da las mismas metricas que InstrumentedExecutor,
+ * pero la espera es el retraso sobre la hora a la que se programo cada tarea.
+ */
+public class InstrumentedScheduler extends ScheduledThreadPoolExecutor {
+
+    private static final int SAMPLES = 1024;
+
+    private final String name;
+    private final LatencyRecorder lateness = new LatencyRecorder(SAMPLES);
+    private final LatencyRecorder runTimes = new LatencyRecorder(SAMPLES);
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final ThreadLocal<Long> startedAt = new ThreadLocal<>();
+
+    public InstrumentedScheduler(ExecutorConfig config) {
+        super(config.threads, InstrumentedExecutor.threadFactory(config, true));
+        this.name = config.name;
+        setRemoveOnCancelPolicy(true); //Lo cancelado no se queda en la cola hasta su hora
+    }
+
+    @Override
+    protected <V> RunnableScheduledFuture<V> decorateTask(Runnable runnable, RunnableScheduledFuture<V> task) {
+        updateMaxQueueDepth();
+        return task;
+    }
+
+    @Override
+    protected <V> RunnableScheduledFuture<V> decorateTask(Callable<V> callable, RunnableScheduledFuture<V> task) {
+        updateMaxQueueDepth();
+        return task;
+    }
+
+    @Override
+    protected void beforeExecute(Thread thread, Runnable runnable) {
+        if(runnable instanceof Delayed){ //getDelay es negativo si llega tarde
+            lateness.record(Math.max(0, -((Delayed) runnable).getDelay(TimeUnit.NANOSECONDS)));
+        }
+        startedAt.set(System.nanoTime());
+    }
+
+    @Override
+    protected void afterExecute(Runnable runnable, Throwable error) {
+        Long start = startedAt.get();
+        if(start != null){
+            runTimes.record(System.nanoTime() - start);
+        }
+    }
+
+    public InstrumentedExecutor.Snapshot snapshot(){
+        return new InstrumentedExecutor.Snapshot(name, getPoolSize(), getActiveCount(), getQueue().size(),
+                maxQueueDepth.get(), getCompletedTaskCount(), 0, lateness.percentiles(),
+                runTimes.percentiles());
+    }
+
+    private void updateMaxQueueDepth(){
+        int depth = getQueue().size() + 1; //decorateTask va justo antes de meterla en la cola
+        int max;
+        while (depth > (max = maxQueueDepth.get()) && !maxQueueDepth.compareAndSet(max, depth)){
+            //Otro hilo lo ha cambiado, reintentamos
+        }
+    }
+}
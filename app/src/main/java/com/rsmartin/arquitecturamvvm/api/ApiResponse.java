@@ -1,34 +1,43 @@
 package com.rsmartin.arquitecturamvvm.api;
 
-import android.util.ArrayMap;
 import android.util.Log;
 
+import com.rsmartin.arquitecturamvvm.model.HttpValidator;
+
 import java.io.IOException;
 import java.util.Collections;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import retrofit2.Response;
 
 public class ApiResponse<T> {
 
-    private static final Pattern LINK_PATTERN = Pattern
-            .compile("<([^>]*)>[\\s]*;[\\s]*rel=\"([a-zA-Z0-9]+)\"");
-    private static final Pattern PAGE_PATTERN = Pattern.compile("\\bpage=(\\d+)");
-
     private static final String NEXT_LINE = "next";
     private static final String NEXT_LINK = "next";
+    private static final String FIRST_LINK = "first";
+    private static final String PREV_LINK = "prev";
+    private static final String LAST_LINK = "last";
+    private static final int NOT_MODIFIED = 304;
     public final int code;
     public final T body;
     public final String errorMessage;
     public final Map<String, String> links;
+    public final boolean rateLimited;
+    public final long contentLength; //-1 si no lo sabemos (sin Content-Length, gzip...)
+    public final String url; //La de la peticion, null si no ha llegado a salir
+    private final String etag;
+    private final String lastModified;
 
     public ApiResponse(Throwable error){
         code = 500;
         body = null;
         errorMessage = error.getMessage();
         links = Collections.emptyMap();
+        rateLimited = false;
+        contentLength = -1;
+        url = null;
+        etag = null;
+        lastModified = null;
     }
 
     public ApiResponse(Response<T> response){
@@ -37,6 +46,9 @@ public class ApiResponse<T> {
         if(response.isSuccessful()){
             body = response.body();
             errorMessage = null;
+        } else if(code == NOT_MODIFIED){ //Peticion condicional, lo que tenemos en Room sigue valiendo
+            body = null;
+            errorMessage = null;
         } else {
             String message = null;
             if(response.errorBody() != null){
@@ -52,42 +64,58 @@ public class ApiResponse<T> {
             errorMessage = message;
             body = null;
         }
-        String linkHeader = response.headers().get("link");
-        if(linkHeader == null){
-            links = Collections.emptyMap();
-        } else {
-            links = new ArrayMap<>();
-            Matcher matcher = LINK_PATTERN.matcher(linkHeader);
-
-            while (matcher.find()){
-                int count = matcher.groupCount();
-                if(count == 2){
-                    links.put(matcher.group(2), matcher.group(1));
-                }
-            }
-        }
+        rateLimited = code == RateBudgetInterceptor.TOO_MANY_REQUESTS
+                || (code == 403 && "0".equals(response.headers().get("X-RateLimit-Remaining")));
+        links = LinkHeaders.parse(response.headers().get("link"));
+        contentLength = response.raw().body() != null ? response.raw().body().contentLength() : -1;
+        url = response.raw().request().url().toString();
+        etag = response.headers().get("ETag");
+        lastModified = response.headers().get("Last-Modified");
     }
 
     public boolean isSuccessful(){
         return code >= 200 && code <300;
     }
 
-    public Integer getNextPage(){
-        String next = links.get(NEXT_LINK);
-        if(next == null){
-            return null;
-        }
-        Matcher matcher = PAGE_PATTERN.matcher(next);
+    public boolean isNotModified(){
+        return code == NOT_MODIFIED;
+    }
 
-        if(!matcher.find() || matcher.groupCount() != 1){
-            return null;
-        }
-        try{
-            return Integer.parseInt(matcher.group());
-        } catch (NumberFormatException ex){
-            Log.d("cannot parse next", next);
+    /**
+     * ETag / Last-Modified de una respuesta buena, para guardarlos cuando su cuerpo ya este
+     * en Room (ver NetworkBoundResource). null si no hay nada que guardar.
+     */
+    public HttpValidator validator(){
+        if(!isSuccessful() || url == null || (etag == null && lastModified == null)){
             return null;
         }
+        return new HttpValidator(url, etag, lastModified);
+    }
+
+    /**
+     * Nos hemos quedado sin rate limit (403/429 de GitHub o cortado antes por RateBudgetInterceptor).
+     */
+    public boolean isRateLimited(){
+        return rateLimited;
+    }
+
+    public Integer getNextPage(){
+        return LinkHeaders.pageOf(links.get(NEXT_LINK));
+    }
+
+    public Integer getFirstPage(){
+        return LinkHeaders.pageOf(links.get(FIRST_LINK));
+    }
+
+    public Integer getPrevPage(){
+        return LinkHeaders.pageOf(links.get(PREV_LINK));
+    }
+
+    /**
+     * La ultima pagina (rel="last"). GitHub no la manda cuando ya estamos en ella.
+     */
+    public Integer getLastPage(){
+        return LinkHeaders.pageOf(links.get(LAST_LINK));
     }
 
 }
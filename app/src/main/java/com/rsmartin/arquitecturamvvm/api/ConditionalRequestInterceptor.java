@@ -0,0 +1,64 @@
+package com.rsmartin.arquitecturamvvm.api;
+
+import com.rsmartin.arquitecturamvvm.db.HttpValidatorDao;
+import com.rsmartin.arquitecturamvvm.model.HttpValidator;
+
+import java.io.IOException;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Añade If-None-Match / If-Modified-Since a cada GET con los validadores que guardamos
+ * de la ultima respuesta buena de esa url. Si no ha cambiado GitHub contesta 304,
+ * que no gasta rate limit, y ApiResponse lo marca como isNotModified().
+ *
+ * Aqui solo se leen: los guarda NetworkBoundResource en diskIO cuando el cuerpo ya esta en Room
+ * (ApiResponse.validator()). Si se guardaran al llegar la respuesta y luego fallara el guardado,
+ * los 304 siguientes dejarian Room sin esos datos para siempre.
+ *
+ * Las peticiones con "Cache-Control: no-cache" van sin condiciones porque necesitan el cuerpo
+ * (p.ej. las paginas de busqueda que se van acumulando en Room).
+ *
+ * Se ejecuta en los hilos de red; leer Room desde aqui no molesta a diskIO (WAL).
+ */
+
+@Singleton
+public class ConditionalRequestInterceptor implements Interceptor {
+
+    private final HttpValidatorDao validatorDao;
+
+    @Inject
+    public ConditionalRequestInterceptor(HttpValidatorDao validatorDao) {
+        this.validatorDao = validatorDao;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if(!"GET".equals(request.method()) || request.cacheControl().noCache()
+                || request.header("If-None-Match") != null
+                || request.header("If-Modified-Since") != null){
+            return chain.proceed(request);
+        }
+
+        String url = request.url().toString();
+        HttpValidator validator = validatorDao.find(url);
+        if(validator != null){
+            Request.Builder builder = request.newBuilder();
+            if(validator.etag != null){
+                builder.header("If-None-Match", validator.etag);
+            }
+            if(validator.lastModified != null){
+                builder.header("If-Modified-Since", validator.lastModified);
+            }
+            request = builder.build();
+        }
+
+        return chain.proceed(request);
+    }
+}
@@ -0,0 +1,56 @@
+package com.rsmartin.arquitecturamvvm.api;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Lee el header Link de GitHub (rel -> url) y el numero de pagina de esas urls.
+ * Es Java puro para poder medirlo fuera de Android (modulo benchmark).
+ */
+public class LinkHeaders {
+
+    private static final Pattern LINK_PATTERN = Pattern
+            .compile("<([^>]*)>[\\s]*;[\\s]*rel=\"([a-zA-Z0-9]+)\"");
+    private static final Pattern PAGE_PATTERN = Pattern.compile("\\bpage=(\\d+)");
+
+    private LinkHeaders() {
+    }
+
+    public static Map<String, String> parse(String linkHeader){
+        if(linkHeader == null){
+            return Collections.emptyMap();
+        }
+        Map<String, String> links = new HashMap<>();
+        Matcher matcher = LINK_PATTERN.matcher(linkHeader);
+
+        while (matcher.find()){
+            int count = matcher.groupCount();
+            if(count == 2){
+                links.put(matcher.group(2), matcher.group(1));
+            }
+        }
+        return links;
+    }
+
+    /**
+     * El parametro page de la url, o null si no tiene o no es un numero.
+     */
+    public static Integer pageOf(String url){
+        if(url == null){
+            return null;
+        }
+        Matcher matcher = PAGE_PATTERN.matcher(url);
+
+        if(!matcher.find() || matcher.groupCount() != 1){
+            return null;
+        }
+        try{
+            return Integer.parseInt(matcher.group(1));
+        } catch (NumberFormatException ex){
+            return null;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.rsmartin.arquitecturamvvm.api;
+
+import com.rsmartin.arquitecturamvvm.AppExecutors;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import okhttp3.Headers;
+
+/**
+ * Lo que nos queda de rate limit de GitHub, leido de las cabeceras X-RateLimit-* y Retry-After
+ * de cada respuesta (lo rellena RateBudgetInterceptor).
+ *
+ * GitHub lleva cuentas separadas por recurso ("core", "search", ...), asi que guardamos
+ * una por cada uno. Con esto:
+ * - si no queda nada no hacemos la peticion y se sirve lo que haya en Room,
+ * - las peticiones que no corren prisa (prefetch, paginas extra) se espacian o se dejan
+ *   para luego cuando queda poco.
+ */
+
+@Singleton
+public class RateBudget {
+
+    public static final String CORE = "core";
+    public static final String SEARCH = "search";
+
+    private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private final float lowWatermark;
+    private final long maxPaceMillis;
+
+    @Inject
+    public RateBudget(AppExecutors appExecutors) {
+        this(appExecutors.scheduler(), 0.2f, TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * @param scheduler donde esperan las peticiones espaciadas (el de AppExecutors)
+     * @param lowWatermark por debajo de esta fraccion del limite empezamos a espaciar
+     * @param maxPaceMillis lo maximo que esperamos antes de una peticion que no corre prisa
+     */
+    public RateBudget(ScheduledExecutorService scheduler, float lowWatermark, long maxPaceMillis) {
+        this.scheduler = scheduler;
+        this.lowWatermark = lowWatermark;
+        this.maxPaceMillis = maxPaceMillis;
+    }
+
+    public static String resourceForPath(String path){
+        return path.startsWith("/search/") ? SEARCH : CORE;
+    }
+
+    public void update(String resource, int code, Headers headers){
+        String headerResource = headers.get("X-RateLimit-Resource");
+        Bucket bucket = bucket(headerResource != null ? headerResource : resource);
+        long now = now();
+        Integer limit = parseInt(headers.get("X-RateLimit-Limit"));
+        Integer remaining = parseInt(headers.get("X-RateLimit-Remaining"));
+        Integer reset = parseInt(headers.get("X-RateLimit-Reset")); //Segundos epoch
+        Integer retryAfter = parseInt(headers.get("Retry-After")); //Segundos desde ahora
+        synchronized (bucket){
+            if(limit != null){
+                bucket.limit = limit;
+            }
+            if(remaining != null){
+                bucket.remaining = remaining;
+            }
+            if(reset != null){
+                bucket.resetAtMillis = TimeUnit.SECONDS.toMillis(reset);
+            }
+            if(retryAfter != null){
+                bucket.blockedUntilMillis = now + TimeUnit.SECONDS.toMillis(retryAfter);
+            } else if(code == 403 && remaining != null && remaining == 0 && reset != null){
+                bucket.blockedUntilMillis = bucket.resetAtMillis;
+            }
+        }
+    }
+
+    /**
+     * No queda presupuesto hasta el reset (o nos han pedido esperar con Retry-After).
+     */
+    public boolean isExhausted(String resource){
+        Bucket bucket = bucket(resource);
+        long now = now();
+        synchronized (bucket){
+            if(now < bucket.blockedUntilMillis){
+                return true;
+            }
+            return bucket.remaining == 0 && now < bucket.resetAtMillis;
+        }
+    }
+
+    /**
+     * Cuanto deberia esperar una peticion que no corre prisa. 0 si vamos sobrados; si queda poco
+     * repartimos lo que queda hasta el reset; Long.MAX_VALUE si no queda nada.
+     */
+    public long paceMillis(String resource){
+        if(isExhausted(resource)){
+            return Long.MAX_VALUE;
+        }
+        Bucket bucket = bucket(resource);
+        long now = now();
+        synchronized (bucket){
+            if(bucket.remaining < 0 || bucket.limit <= 0
+                    || bucket.remaining > bucket.limit * lowWatermark || now >= bucket.resetAtMillis){
+                return 0;
+            }
+            return (bucket.resetAtMillis - now) / Math.max(1, bucket.remaining);
+        }
+    }
+
+    /**
+     * Para peticiones que no corren prisa: ejecuta task en executor cuando toque (como mucho
+     * maxPaceMillis) o skipped si es mejor no hacerla ahora. La espera la lleva scheduler, asi que
+     * no se queda un hilo de networkIO dormido mientras tanto.
+     */
+    public void runNonUrgent(String resource, Executor executor, Runnable task, Runnable skipped){
+        long pace = paceMillis(resource);
+        if(pace == 0){
+            executor.execute(task);
+        } else if(pace > maxPaceMillis){
+            executor.execute(skipped);
+        } else {
+            scheduler.schedule(() -> executor.execute(isExhausted(resource) ? skipped : task),
+                    pace, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    protected long now(){
+        return System.currentTimeMillis(); //El reset de GitHub viene en hora de reloj
+    }
+
+    private Bucket bucket(String resource){
+        Bucket bucket = buckets.get(resource);
+        if(bucket == null){
+            Bucket created = new Bucket();
+            bucket = buckets.putIfAbsent(resource, created);
+            if(bucket == null){
+                bucket = created;
+            }
+        }
+        return bucket;
+    }
+
+    private static Integer parseInt(String value){
+        if(value == null){
+            return null;
+        }
+        try{
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException ignored){
+            return null;
+        }
+    }
+
+    private static class Bucket {
+        int limit = -1;
+        int remaining = -1; //-1: todavia no lo sabemos
+        long resetAtMillis;
+        long blockedUntilMillis;
+    }
+}
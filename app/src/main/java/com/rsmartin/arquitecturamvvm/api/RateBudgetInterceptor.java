@@ -0,0 +1,52 @@
+package com.rsmartin.arquitecturamvvm.api;
+
+import java.io.IOException;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import okhttp3.Interceptor;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Actualiza RateBudget con las cabeceras de cada respuesta y, si ya no queda presupuesto,
+ * contesta un 429 sin salir a la red. ApiResponse lo marca como isRateLimited() y
+ * NetworkBoundResource sirve lo que haya en Room en vez de dar error.
+ */
+
+@Singleton
+public class RateBudgetInterceptor implements Interceptor {
+
+    static final int TOO_MANY_REQUESTS = 429;
+
+    private final RateBudget rateBudget;
+
+    @Inject
+    public RateBudgetInterceptor(RateBudget rateBudget) {
+        this.rateBudget = rateBudget;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        String resource = RateBudget.resourceForPath(request.url().encodedPath());
+        if(rateBudget.isExhausted(resource)){
+            return new Response.Builder()
+                    .request(request)
+                    .protocol(Protocol.HTTP_1_1)
+                    .code(TOO_MANY_REQUESTS)
+                    .message("Rate limit exhausted")
+                    .body(ResponseBody.create(null, ""))
+                    .build();
+        }
+        Response response = chain.proceed(request);
+        Response networkResponse = response.networkResponse();
+        if(networkResponse != null){ //Lo que sale de la cache de OkHttp trae las cabeceras de entonces
+            rateBudget.update(resource, networkResponse.code(), networkResponse.headers());
+        }
+        return response;
+    }
+}
@@ -0,0 +1,87 @@
+package com.rsmartin.arquitecturamvvm.api;
+
+import androidx.annotation.WorkerThread;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.rsmartin.arquitecturamvvm.model.Repo;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.ResponseBody;
+
+/**
+ * Lee una lista de repos del cuerpo de la respuesta sin cargarla entera en memoria.
+ *
+ * Vale para las dos formas que devuelve GitHub: un array (users/{login}/repos) o un objeto
+ * con total_count e items (search/repositories). Cada chunkSize repos se los pasa al
+ * ChunkHandler, que los guarda en Room, y sigue leyendo; asi las primeras filas estan en
+ * Room antes de terminar de bajar el JSON.
+ */
+
+public class RepoStreamParser {
+
+    private final TypeAdapter<Repo> repoAdapter;
+    private final int chunkSize;
+
+    public RepoStreamParser(Gson gson, int chunkSize) {
+        this.repoAdapter = gson.getAdapter(Repo.class);
+        this.chunkSize = chunkSize;
+    }
+
+    @WorkerThread
+    public Result parse(ResponseBody body, ChunkHandler handler) throws IOException {
+        Result result = new Result();
+        try(JsonReader reader = new JsonReader(body.charStream())){
+            if(reader.peek() == JsonToken.BEGIN_ARRAY){
+                readRepos(reader, handler, result);
+            } else {
+                reader.beginObject();
+                while (reader.hasNext()){
+                    String name = reader.nextName();
+                    if("total_count".equals(name)){
+                        result.totalCount = reader.nextInt();
+                    } else if("items".equals(name)){
+                        readRepos(reader, handler, result);
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            }
+        }
+        return result;
+    }
+
+    private void readRepos(JsonReader reader, ChunkHandler handler, Result result) throws IOException {
+        List<Repo> chunk = new ArrayList<>(chunkSize);
+        reader.beginArray();
+        while (reader.hasNext()){
+            Repo repo = repoAdapter.read(reader);
+            chunk.add(repo);
+            result.repoIds.add(repo.id);
+            if(chunk.size() == chunkSize){
+                handler.onChunk(chunk, result.totalCount);
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+        reader.endArray();
+        if(!chunk.isEmpty()){
+            handler.onChunk(chunk, result.totalCount);
+        }
+    }
+
+    public interface ChunkHandler {
+        @WorkerThread
+        void onChunk(List<Repo> repos, int totalCount);
+    }
+
+    public static class Result {
+        public final List<Integer> repoIds = new ArrayList<>();
+        public int totalCount;
+    }
+}
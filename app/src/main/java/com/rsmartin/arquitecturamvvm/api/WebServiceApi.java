@@ -9,10 +9,13 @@ import com.rsmartin.arquitecturamvvm.model.User;
 
 import java.util.List;
 
+import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.http.GET;
+import retrofit2.http.Headers;
 import retrofit2.http.Path;
 import retrofit2.http.Query;
+import retrofit2.http.Streaming;
 
 public interface WebServiceApi {
 
@@ -22,15 +25,36 @@ public interface WebServiceApi {
     @GET("users/{login}/repos")
     LiveData<ApiResponse<List<Repo>>> getRepos(@Path("login") String login);
 
+    /**
+     * Sin convertir a objetos, para leerlo por partes con RepoStreamParser.
+     */
+    @Streaming
+    @GET("users/{login}/repos")
+    LiveData<ApiResponse<ResponseBody>> getReposStream(@Path("login") String login);
+
+    @Headers("Cache-Control: no-cache") //Se guardan todas las paginas juntas, necesitamos el cuerpo de cada una
+    @GET("users/{login}/repos")
+    Call<List<Repo>> getRepos(@Path("login") String login, @Query("page") int page);
+
     @GET("repos/{owner}/{name}")
     LiveData<ApiResponse<Repo>> getRepo(@Path("owner") String owner, @Path("name") String name);
 
     @GET("repos/{owner}/{name}/contributors")
     LiveData<ApiResponse<List<Contributor>>> getContributors(@Path("owner") String owner, @Path("name") String name);
 
+    @Headers("Cache-Control: no-cache")
+    @GET("repos/{owner}/{name}/contributors")
+    Call<List<Contributor>> getContributors(@Path("owner") String owner, @Path("name") String name,
+                                            @Query("page") int page);
+
     @GET("search/repositories")
     LiveData<ApiResponse<RepoSearchResponse>> searchRepos(@Query("q") String query);
 
+    @Streaming
+    @GET("search/repositories")
+    LiveData<ApiResponse<ResponseBody>> searchReposStream(@Query("q") String query);
+
+    @Headers("Cache-Control: no-cache") //Las paginas se acumulan en Room, siempre necesitamos el cuerpo
     @GET("search/repositories")
     Call<RepoSearchResponse> searchRepos(@Query("q") String query, @Query("page") int page);
 }
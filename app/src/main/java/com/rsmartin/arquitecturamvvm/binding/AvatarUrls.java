@@ -0,0 +1,37 @@
+package com.rsmartin.arquitecturamvvm.binding;
+
+/**
+ * GitHub redimensiona los avatares en el servidor con el parametro s (en pixels): pedimos
+ * el tamaño de la vista y no bajamos ni decodificamos la imagen original de 460px.
+ */
+public class AvatarUrls {
+
+    private AvatarUrls() {
+    }
+
+    public static String sized(String url, int sizePx){
+        if(url == null || sizePx <= 0 || !url.contains("githubusercontent.com")){
+            return url;
+        }
+        int query = url.indexOf('?');
+        if(query < 0){
+            return url + "?s=" + sizePx;
+        }
+        StringBuilder sized = new StringBuilder(url.length() + 8).append(url, 0, query + 1);
+        boolean first = true;
+        for(String param : url.substring(query + 1).split("&")){
+            if(param.isEmpty() || param.startsWith("s=")){
+                continue; //El tamaño que traiga lo cambiamos por el nuestro
+            }
+            if(!first){
+                sized.append('&');
+            }
+            sized.append(param);
+            first = false;
+        }
+        if(!first){
+            sized.append('&');
+        }
+        return sized.append("s=").append(sizePx).toString();
+    }
+}
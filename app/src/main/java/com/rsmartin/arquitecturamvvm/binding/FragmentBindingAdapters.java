@@ -1,16 +1,36 @@
 package com.rsmartin.arquitecturamvvm.binding;
 
+import android.graphics.drawable.Drawable;
+import android.view.ViewGroup;
 import android.widget.ImageView;
 
 import androidx.databinding.BindingAdapter;
 import androidx.fragment.app.Fragment;
 
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.ListPreloader;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.request.RequestOptions;
+import com.bumptech.glide.util.FixedPreloadSizeProvider;
+import com.rsmartin.arquitecturamvvm.R;
+
+import java.util.Collections;
+import java.util.List;
 
 import javax.inject.Inject;
 
+/**
+ * Los avatares se piden al tamaño de la vista (ver AvatarUrls) y se decodifican en RGB_565,
+ * la mitad de memoria que ARGB_8888 (Glide vuelve a ARGB si la imagen tiene transparencia).
+ * bindImage y avatarPreloader construyen la peticion igual, asi lo precargado sale de la cache
+ * en memoria de Glide cuando la fila entra en pantalla.
+ */
 public class FragmentBindingAdapters {
 
+    private static final int MAX_PRELOAD = 10; //Filas por delante de la ultima visible
+
     final Fragment fragment;
 
     @Inject
@@ -20,6 +40,54 @@ public class FragmentBindingAdapters {
 
     @BindingAdapter("imageUrl")
     public void bindImage(ImageView imageView, String url){
-        Glide.with(fragment).load(url).into(imageView);
+        avatarRequest(url, targetSize(imageView)).into(imageView);
+    }
+
+    /**
+     * Para añadir como OnScrollListener de un RecyclerView con avatares de photo_size.
+     */
+    public RecyclerViewPreloader<String> avatarPreloader(AvatarSource source){
+        int size = fragment.getResources().getDimensionPixelSize(R.dimen.photo_size);
+        ListPreloader.PreloadModelProvider<String> models = new ListPreloader.PreloadModelProvider<String>() {
+            @Override
+            public List<String> getPreloadItems(int position) {
+                String url = source.avatarUrl(position);
+                return url == null ? Collections.emptyList() : Collections.singletonList(url);
+            }
+
+            @Override
+            public RequestBuilder<Drawable> getPreloadRequestBuilder(String url) {
+                return avatarRequest(url, size);
+            }
+        };
+        return new RecyclerViewPreloader<>(Glide.with(fragment), models,
+                new FixedPreloadSizeProvider<>(size, size), MAX_PRELOAD);
+    }
+
+    private RequestBuilder<Drawable> avatarRequest(String url, int size){
+        return Glide.with(fragment)
+                .load(AvatarUrls.sized(url, size))
+                .apply(new RequestOptions()
+                        .override(size)
+                        .centerCrop()
+                        .format(DecodeFormat.PREFER_RGB_565));
+    }
+
+    /**
+     * El ancho fijo del layout (photo_size en las filas); si es wrap/match usamos photo_size.
+     */
+    private int targetSize(ImageView imageView){
+        ViewGroup.LayoutParams params = imageView.getLayoutParams();
+        if(params != null && params.width > 0){
+            return params.width;
+        }
+        return imageView.getResources().getDimensionPixelSize(R.dimen.photo_size);
+    }
+
+    /**
+     * La url del avatar de la fila position, o null si no tiene o se sale de la lista.
+     */
+    public interface AvatarSource {
+        String avatarUrl(int position);
     }
 }
@@ -0,0 +1,88 @@
+package com.rsmartin.arquitecturamvvm.db;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Dao;
+import androidx.room.Query;
+
+import java.util.List;
+
+/**
+ * Queries de CacheEvictor: apuntar accesos y borrar lo menos usado.
+ */
+@Dao
+public interface EvictionDao {
+
+    @Query("UPDATE Repo SET lastAccessed = :now WHERE owner_login = :owner AND name = :name")
+    void touchRepo(String owner, String name, long now);
+
+    @Query("UPDATE Repo SET lastAccessed = :now WHERE owner_login = :owner")
+    void touchOwner(String owner, long now);
+
+    @Query("UPDATE RepoSearchResult SET lastAccessed = :now WHERE query = :query")
+    void touchSearch(String query, long now);
+
+    @Query("SELECT COUNT(*) FROM RepoSearchResult")
+    int countSearches();
+
+    @Query("SELECT COUNT(*) FROM Repo")
+    int countRepos();
+
+    @Query("SELECT COUNT(*) FROM Contributor")
+    int countContributors();
+
+    @Query("DELETE FROM RepoSearchResult WHERE query IN "
+            + "(SELECT query FROM RepoSearchResult ORDER BY lastAccessed ASC LIMIT :count)")
+    int deleteOldestSearches(int count);
+
+    /**
+     * Posiciones de busquedas que ya no tienen cabecera.
+     */
+    @Query("DELETE FROM search_result_item WHERE query NOT IN (SELECT query FROM RepoSearchResult)")
+    int deleteOrphanSearchItems();
+
+    /**
+     * Los repos menos usados que tienen contributors, con cuantos tiene cada uno. Los contributors
+     * se borran por repo enteros: una lista cortada por la mitad seguiria pareciendo fresca.
+     */
+    @Query("SELECT Repo.name, Repo.owner_login, COUNT(*) AS contributors FROM Contributor "
+            + "INNER JOIN Repo ON Repo.owner_login = Contributor.repoOwner AND Repo.name = Contributor.repoName "
+            + "GROUP BY Repo.owner_login, Repo.name ORDER BY Repo.lastAccessed ASC LIMIT :count")
+    List<ContributorGroup> findOldestContributorGroups(int count);
+
+    /**
+     * Los repos menos usados que no salen en ninguna busqueda guardada (si no, la busqueda
+     * se quedaria con huecos). Las busquedas se desalojan antes, y eso libera sus repos.
+     */
+    @Query("SELECT name, owner_login FROM Repo "
+            + "WHERE id NOT IN (SELECT repo_id FROM search_result_item) "
+            + "ORDER BY lastAccessed ASC LIMIT :count")
+    List<RepoKey> findEvictableRepos(int count);
+
+    @Query("DELETE FROM Contributor WHERE repoOwner = :owner AND repoName = :name")
+    int deleteContributors(String owner, String name);
+
+    @Query("DELETE FROM Repo WHERE owner_login = :owner AND name = :name")
+    void deleteRepo(String owner, String name);
+
+    /**
+     * Los repos que quedan de owner ya no son su lista completa: que loadRepos la vuelva a pedir.
+     */
+    @Query("UPDATE Repo SET fetchedAt = 0 WHERE owner_login = :owner")
+    void expireOwner(String owner);
+
+    /**
+     * La descarga paginada de una lista que ya no esta entera (ver PageCursor).
+     */
+    @Query("DELETE FROM page_cursor WHERE `key` = :key")
+    void deletePageCursor(String key);
+
+    class RepoKey {
+        public String name;
+        @ColumnInfo(name = "owner_login")
+        public String ownerLogin;
+    }
+
+    class ContributorGroup extends RepoKey {
+        public int contributors;
+    }
+}
@@ -4,15 +4,26 @@ import androidx.room.Database;
 import androidx.room.RoomDatabase;
 
 import com.rsmartin.arquitecturamvvm.model.Contributor;
+import com.rsmartin.arquitecturamvvm.model.HttpValidator;
+import com.rsmartin.arquitecturamvvm.model.PageCursor;
 import com.rsmartin.arquitecturamvvm.model.Repo;
+import com.rsmartin.arquitecturamvvm.model.RepoFts;
+import com.rsmartin.arquitecturamvvm.model.RepoSearchItem;
 import com.rsmartin.arquitecturamvvm.model.RepoSearchResult;
 import com.rsmartin.arquitecturamvvm.model.User;
 
-@Database(entities = {User.class, Repo.class, Contributor.class, RepoSearchResult.class}, version = 1)
+@Database(entities = {User.class, Repo.class, Contributor.class, RepoSearchResult.class,
+        RepoSearchItem.class, HttpValidator.class, PageCursor.class, RepoFts.class}, version = 7)
 public abstract class GitHubDb extends RoomDatabase {
 
     abstract public UserDao userDao();
 
     abstract public RepoDao repoDao();
 
+    abstract public HttpValidatorDao httpValidatorDao();
+
+    abstract public PageCursorDao pageCursorDao();
+
+    abstract public EvictionDao evictionDao();
+
 }
@@ -0,0 +1,24 @@
+package com.rsmartin.arquitecturamvvm.db;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import com.rsmartin.arquitecturamvvm.model.HttpValidator;
+
+@Dao
+public interface HttpValidatorDao {
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insert(HttpValidator validator);
+
+    @Query("SELECT * FROM HttpValidator WHERE url = :url")
+    HttpValidator find(String url);
+
+    @Query("DELETE FROM HttpValidator WHERE url = :url")
+    void delete(String url);
+
+    @Query("DELETE FROM HttpValidator")
+    void deleteAll();
+}
@@ -0,0 +1,24 @@
+package com.rsmartin.arquitecturamvvm.db;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import com.rsmartin.arquitecturamvvm.model.PageCursor;
+
+@Dao
+public interface PageCursorDao {
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insert(PageCursor cursor);
+
+    @Query("SELECT * FROM page_cursor WHERE `key` = :key")
+    PageCursor find(String key);
+
+    @Query("DELETE FROM page_cursor WHERE `key` = :key")
+    void delete(String key);
+
+    @Query("DELETE FROM page_cursor")
+    void deleteAll();
+}
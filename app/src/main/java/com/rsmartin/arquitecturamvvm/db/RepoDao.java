@@ -1,21 +1,19 @@
 package com.rsmartin.arquitecturamvvm.db;
 
-import android.util.SparseIntArray;
-
-import androidx.arch.core.util.Function;
 import androidx.lifecycle.LiveData;
-import androidx.lifecycle.Transformations;
+import androidx.paging.DataSource;
 import androidx.room.Dao;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 
 import com.rsmartin.arquitecturamvvm.model.Contributor;
 import com.rsmartin.arquitecturamvvm.model.Repo;
+import com.rsmartin.arquitecturamvvm.model.RepoSearchItem;
 import com.rsmartin.arquitecturamvvm.model.RepoSearchResult;
 
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.ArrayList;
 import java.util.List;
 
 @Dao
@@ -36,45 +34,146 @@ public abstract class RepoDao {
     @Query("SELECT * FROM repo WHERE owner_login = :login AND name = :name")
     public abstract LiveData<Repo> load(String login, String name);
 
-    @Query("SELECT login, avatarUrl, repoName, repoOwner, contributions FROM contributor WHERE repoName = :name AND repoOwner = :owner ORDER BY contributions DESC")
+    @Query("SELECT login, avatarUrl, repoName, repoOwner, contributions, fetchedAt FROM contributor WHERE repoName = :name AND repoOwner = :owner ORDER BY contributions DESC")
     public abstract LiveData<List<Contributor>> loadContributors(String owner, String name);
 
-    @Query("SELECT * FROM Repo WHERE owner_login = :owner ORDER BY stars DESC")
+    @Query("SELECT * FROM Repo WHERE owner_login = :owner ORDER BY stars DESC, name ASC")
     public abstract LiveData<List<Repo>> loadRepositories(String owner);
 
+    /**
+     * Igual que loadRepositories pero por ventanas: Room solo lee la parte visible (LIMIT/OFFSET).
+     * name desempata los repos con las mismas estrellas; sin un orden unico dos ventanas
+     * seguidas podrian repetir o saltarse una fila.
+     */
+    @Query("SELECT * FROM Repo WHERE owner_login = :owner ORDER BY stars DESC, name ASC")
+    public abstract DataSource.Factory<Integer, Repo> loadRepositoriesPaged(String owner);
+
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     public abstract void insert(RepoSearchResult result);
 
-    public LiveData<List<Repo>> loadOrdered(List<Integer> repoIds){
-        SparseIntArray order = new SparseIntArray();
-        int index = 0;
-        for(Integer repoId : repoIds){
-            order.put(repoId, index++);
-        }
-        return Transformations.map(loadById(repoIds), new Function<List<Repo>, List<Repo>>() {
-            @Override
-            public List<Repo> apply(List<Repo> repositories) {
-                Collections.sort(repositories, new Comparator<Repo>() {
-                    @Override
-                    public int compare(Repo repo, Repo t1) {
-                        int pos1 = order.get(repo.id);
-                        int pos2 = order.get(t1.id);
-                        return pos1 - pos2;
-                    }
-                });
-                return repositories;
-            }
-        });
-    }
+    @Query("UPDATE Repo SET fetchedAt = :fetchedAt WHERE owner_login = :owner AND name = :name")
+    public abstract void touchRepo(String owner, String name, long fetchedAt);
+
+    @Query("UPDATE Repo SET fetchedAt = :fetchedAt WHERE owner_login = :owner")
+    public abstract void touchRepositories(String owner, long fetchedAt);
+
+    @Query("UPDATE Contributor SET fetchedAt = :fetchedAt WHERE repoOwner = :owner AND repoName = :name")
+    public abstract void touchContributors(String owner, String name, long fetchedAt);
+
+    @Query("UPDATE RepoSearchResult SET fetchedAt = :fetchedAt WHERE query = :query")
+    public abstract void touchSearch(String query, long fetchedAt);
 
     @Query("SELECT * FROM RepoSearchResult WHERE query = :query")
     public abstract LiveData<RepoSearchResult> search(String query);
 
-    @Query("SELECT * FROM Repo WHERE id in(:repoIds)")
-    protected abstract LiveData<List<Repo>> loadById(List<Integer> repoIds);
-
     @Query("SELECT * FROM RepoSearchResult WHERE query = :query")
     public abstract RepoSearchResult findSearchResult(String query);
 
+    /**
+     * Repos de una busqueda ya ordenados por su posicion, sin ordenar en memoria.
+     */
+    @Query("SELECT Repo.* FROM search_result_item INNER JOIN Repo ON Repo.id = search_result_item.repo_id "
+            + "WHERE search_result_item.query = :query ORDER BY search_result_item.position ASC")
+    public abstract LiveData<List<Repo>> loadSearchResults(String query);
+
+    @Query("SELECT Repo.* FROM search_result_item INNER JOIN Repo ON Repo.id = search_result_item.repo_id "
+            + "WHERE search_result_item.query = :query ORDER BY search_result_item.position ASC")
+    public abstract DataSource.Factory<Integer, Repo> loadSearchResultsPaged(String query);
+
+    /**
+     * Busqueda local sobre todo lo que hay en Room, sin depender de que la misma query
+     * se haya hecho antes. Cada palabra se busca como prefijo y tienen que estar todas.
+     * Devuelve una lista vacia si la query no tiene ninguna palabra buscable.
+     */
+    public LiveData<List<Repo>> searchLocal(String query, int limit){
+        return searchFts(toFtsMatch(query), limit);
+    }
+
+    @Query("SELECT Repo.* FROM Repo INNER JOIN repo_fts ON Repo.rowid = repo_fts.rowid "
+            + "WHERE repo_fts MATCH :match ORDER BY Repo.stars DESC LIMIT :limit")
+    protected abstract LiveData<List<Repo>> searchFts(String match, int limit);
+
+    /**
+     * "android mvvm" -> "android* mvvm*". Quitamos lo que FTS interpretaria como operadores.
+     */
+    static String toFtsMatch(String query){
+        StringBuilder match = new StringBuilder();
+        for(String word : query.split("\\s+")){
+            String token = word.replaceAll("[^\\p{L}\\p{N}_]", "");
+            if(token.isEmpty()){
+                continue;
+            }
+            if(match.length() > 0){
+                match.append(' ');
+            }
+            match.append(token).append('*');
+        }
+        return match.length() == 0 ? "\"\"" : match.toString();
+    }
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    protected abstract void insertSearchItems(List<RepoSearchItem> items);
+
+    @Query("DELETE FROM search_result_item WHERE query = :query")
+    protected abstract void deleteSearchItems(String query);
+
+    @Query("DELETE FROM search_result_item WHERE query = :query AND position >= :from")
+    protected abstract void deleteSearchItemsFrom(String query, int from);
+
+    @Query("SELECT IFNULL(MAX(position) + 1, 0) FROM search_result_item WHERE query = :query")
+    protected abstract int nextSearchPosition(String query);
+
+    /**
+     * Guarda una pagina de busqueda: los repos, sus posiciones y la cabecera.
+     * La primera pagina borra las posiciones anteriores; las siguientes solo añaden las suyas,
+     * asi que cada pagina cuesta lo mismo por muy larga que sea la busqueda.
+     */
+    @Transaction
+    public void insertSearchPage(RepoSearchResult result, List<Repo> repos, boolean firstPage){
+        int position;
+        if(firstPage){
+            deleteSearchItems(result.query);
+            position = 0;
+        } else {
+            position = nextSearchPosition(result.query);
+        }
+        List<RepoSearchItem> items = new ArrayList<>(repos.size());
+        for(Repo repo : repos){
+            items.add(new RepoSearchItem(result.query, position++, repo.id));
+        }
+        insertRepos(repos);
+        insertSearchItems(items);
+        insert(result);
+    }
+
+    /**
+     * Un trozo de una busqueda que se esta leyendo por partes: los repos y sus posiciones desde
+     * from, sustituyendo las que hubiera. No borra nada, asi al revalidar sigue la lista anterior
+     * detras hasta finishSearchChunks. La cabecera solo se escribe si la busqueda es nueva.
+     */
+    @Transaction
+    public void insertSearchChunk(RepoSearchResult result, List<Repo> repos, int from){
+        List<RepoSearchItem> items = new ArrayList<>(repos.size());
+        int position = from;
+        for(Repo repo : repos){
+            items.add(new RepoSearchItem(result.query, position++, repo.id));
+        }
+        insertRepos(repos);
+        insertSearchItems(items);
+        if(findSearchResult(result.query) == null){
+            insert(result);
+        }
+    }
+
+    /**
+     * Ya se ha leido toda la respuesta: se quitan las posiciones que sobraban de la busqueda
+     * anterior y se guarda la cabecera definitiva.
+     */
+    @Transaction
+    public void finishSearchChunks(RepoSearchResult result, int count){
+        deleteSearchItemsFrom(result.query, count);
+        insert(result);
+    }
+
 
 }
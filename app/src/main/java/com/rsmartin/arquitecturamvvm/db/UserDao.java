@@ -17,4 +17,7 @@ public interface UserDao {
     @Query("SELECT * FROM user WHERE login = :login")
     LiveData<User> findByLogin(String login);
 
+    @Query("UPDATE user SET fetchedAt = :fetchedAt WHERE login = :login")
+    void touch(String login, long fetchedAt);
+
 }
@@ -0,0 +1,28 @@
+package com.rsmartin.arquitecturamvvm.di;
+
+import android.app.Application;
+
+import com.rsmartin.arquitecturamvvm.GithubApp;
+
+import javax.inject.Singleton;
+
+import dagger.BindsInstance;
+import dagger.Component;
+
+/**
+ * Grafo de la app. Application entra desde fuera para AppModule (Room, cache HTTP).
+ */
+@Singleton
+@Component(modules = AppModule.class)
+public interface AppComponent {
+
+    @Component.Builder
+    interface Builder {
+        @BindsInstance
+        Builder application(Application application);
+
+        AppComponent build();
+    }
+
+    void inject(GithubApp githubApp);
+}
@@ -0,0 +1,92 @@
+package com.rsmartin.arquitecturamvvm.di;
+
+import android.app.Application;
+
+import androidx.annotation.NonNull;
+import androidx.room.Room;
+import androidx.room.RoomDatabase;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import com.rsmartin.arquitecturamvvm.AppExecutors;
+import com.rsmartin.arquitecturamvvm.db.EvictionDao;
+import com.rsmartin.arquitecturamvvm.db.GitHubDb;
+import com.rsmartin.arquitecturamvvm.db.HttpValidatorDao;
+import com.rsmartin.arquitecturamvvm.db.PageCursorDao;
+import com.rsmartin.arquitecturamvvm.db.RepoDao;
+import com.rsmartin.arquitecturamvvm.db.UserDao;
+import com.rsmartin.arquitecturamvvm.utils.InMemoryMetrics;
+import com.rsmartin.arquitecturamvvm.utils.MetricsSink;
+
+import javax.inject.Singleton;
+
+import dagger.Module;
+import dagger.Provides;
+
+/**
+ * Base de datos y DAOs.
+ *
+ * Room se abre en modo WAL: las lecturas (las queries de los LiveData, que van por el pool
+ * diskRead) pueden ir a la vez que la escritura que este haciendo diskIO.
+ * Es una cache de GitHub, asi que si cambia la version se borra y se vuelve a bajar.
+ *
+ * recursive_triggers: los insert con REPLACE borran la fila vieja, y sin esto SQLite no lanza
+ * los triggers de borrado que mantienen repo_fts al dia.
+ */
+@Module(includes = NetworkModule.class)
+public class AppModule {
+
+    @Singleton
+    @Provides
+    GitHubDb provideDb(Application app, AppExecutors appExecutors){
+        return Room.databaseBuilder(app, GitHubDb.class, "github.db")
+                .setJournalMode(RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING)
+                .setQueryExecutor(appExecutors.diskRead())
+                .fallbackToDestructiveMigration()
+                .addCallback(new RoomDatabase.Callback() {
+                    @Override
+                    public void onOpen(@NonNull SupportSQLiteDatabase db) {
+                        db.execSQL("PRAGMA recursive_triggers = ON");
+                    }
+                })
+                .build();
+    }
+
+    @Singleton
+    @Provides
+    UserDao provideUserDao(GitHubDb db){
+        return db.userDao();
+    }
+
+    @Singleton
+    @Provides
+    RepoDao provideRepoDao(GitHubDb db){
+        return db.repoDao();
+    }
+
+    @Singleton
+    @Provides
+    HttpValidatorDao provideHttpValidatorDao(GitHubDb db){
+        return db.httpValidatorDao();
+    }
+
+    @Singleton
+    @Provides
+    PageCursorDao providePageCursorDao(GitHubDb db){
+        return db.pageCursorDao();
+    }
+
+    @Singleton
+    @Provides
+    EvictionDao provideEvictionDao(GitHubDb db){
+        return db.evictionDao();
+    }
+
+    /**
+     * Las metricas de los NetworkBoundResource se quedan en memoria, se leen con InMemoryMetrics.dump().
+     */
+    @Singleton
+    @Provides
+    MetricsSink provideMetricsSink(InMemoryMetrics metrics){
+        return metrics;
+    }
+}
@@ -0,0 +1,99 @@
+package com.rsmartin.arquitecturamvvm.di;
+
+import android.app.Application;
+
+import com.google.gson.Gson;
+import com.rsmartin.arquitecturamvvm.AppExecutors;
+import com.rsmartin.arquitecturamvvm.BuildConfig;
+import com.rsmartin.arquitecturamvvm.api.ConditionalRequestInterceptor;
+import com.rsmartin.arquitecturamvvm.api.RateBudgetInterceptor;
+import com.rsmartin.arquitecturamvvm.api.WebServiceApi;
+import com.rsmartin.arquitecturamvvm.utils.LiveDataCallAdapterFactory;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Singleton;
+
+import dagger.Module;
+import dagger.Provides;
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.logging.HttpLoggingInterceptor;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+/**
+ * Un solo OkHttpClient para toda la app, los tamaños salen de BuildConfig (ver app/build.gradle).
+ *
+ * - Cache en disco limitada a HTTP_CACHE_MB. Las peticiones que llevan nuestros validadores
+ *   (ConditionalRequestInterceptor) van siempre a red y vuelven como 304; la cache de OkHttp
+ *   sirve el resto, p.ej. respuestas sin ETag o urls de las que hemos borrado el validador.
+ * - Pool de conexiones y HTTP/2: todas las peticiones a api.github.com van por la misma conexion.
+ * - Interceptores: primero RateBudget (corta si no queda presupuesto), luego las condicionales.
+ *   El log va el ultimo y en BASIC para no leer el cuerpo de las respuestas @Streaming.
+ */
+@Module
+public class NetworkModule {
+
+    private static final String BASE_URL = "https://api.github.com/";
+
+    @Singleton
+    @Provides
+    Cache provideHttpCache(Application app){
+        return new Cache(new File(app.getCacheDir(), "http"), BuildConfig.HTTP_CACHE_MB * 1024L * 1024L);
+    }
+
+    @Singleton
+    @Provides
+    ConnectionPool provideConnectionPool(){
+        return new ConnectionPool(BuildConfig.HTTP_MAX_IDLE_CONNECTIONS,
+                BuildConfig.HTTP_KEEP_ALIVE_MINUTES, TimeUnit.MINUTES);
+    }
+
+    @Singleton
+    @Provides
+    OkHttpClient provideOkHttpClient(Cache cache, ConnectionPool connectionPool,
+                                     RateBudgetInterceptor rateBudgetInterceptor,
+                                     ConditionalRequestInterceptor conditionalRequestInterceptor){
+        HttpLoggingInterceptor logging = new HttpLoggingInterceptor();
+        logging.setLevel(BuildConfig.DEBUG ? HttpLoggingInterceptor.Level.BASIC
+                : HttpLoggingInterceptor.Level.NONE);
+
+        return new OkHttpClient.Builder()
+                .cache(cache)
+                .connectionPool(connectionPool)
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectTimeout(BuildConfig.HTTP_CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .readTimeout(BuildConfig.HTTP_READ_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .writeTimeout(BuildConfig.HTTP_WRITE_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .addInterceptor(rateBudgetInterceptor)
+                .addInterceptor(conditionalRequestInterceptor)
+                .addInterceptor(logging)
+                .build();
+    }
+
+    /**
+     * El mismo Gson para Retrofit y para RepoStreamParser: los TypeAdapter se crean una vez.
+     */
+    @Singleton
+    @Provides
+    Gson provideGson(){
+        return new Gson();
+    }
+
+    @Singleton
+    @Provides
+    WebServiceApi provideWebServiceApi(OkHttpClient client, Gson gson, AppExecutors appExecutors){
+        return new Retrofit.Builder()
+                .baseUrl(BASE_URL)
+                .client(client)
+                .addConverterFactory(GsonConverterFactory.create(gson))
+                .addCallAdapterFactory(new LiveDataCallAdapterFactory(appExecutors))
+                .build()
+                .create(WebServiceApi.class);
+    }
+}
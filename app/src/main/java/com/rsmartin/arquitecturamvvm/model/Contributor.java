@@ -6,6 +6,8 @@ import androidx.room.ForeignKey;
 
 import com.google.gson.annotations.SerializedName;
 
+import java.util.Objects;
+
 /**
  * https://api.github.com/repos/jakewharton/ActionBarSherlock/contributors
  */
@@ -27,6 +29,8 @@ public class Contributor {
     public String repoName;
     public String repoOwner;
 
+    public long fetchedAt;
+
     public Contributor(String login, String contributions, String avatarUrl) {
         this.login = login;
         this.contributions = contributions;
@@ -60,4 +64,36 @@ public class Contributor {
     public void setRepoOwner(String repoOwner) {
         this.repoOwner = repoOwner;
     }
+
+    public long getFetchedAt() {
+        return fetchedAt;
+    }
+
+    public void setFetchedAt(long fetchedAt) {
+        this.fetchedAt = fetchedAt;
+    }
+
+    /**
+     * Igualdad por contenido, sin fetchedAt (igual que Repo).
+     */
+    @Override
+    public boolean equals(Object o) {
+        if(this == o){
+            return true;
+        }
+        if(o == null || getClass() != o.getClass()){
+            return false;
+        }
+        Contributor that = (Contributor) o;
+        return Objects.equals(login, that.login)
+                && Objects.equals(contributions, that.contributions)
+                && Objects.equals(avatarUrl, that.avatarUrl)
+                && Objects.equals(repoName, that.repoName)
+                && Objects.equals(repoOwner, that.repoOwner);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(login, contributions, avatarUrl, repoName, repoOwner);
+    }
 }
@@ -0,0 +1,26 @@
+package com.rsmartin.arquitecturamvvm.model;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * Validadores HTTP (ETag / Last-Modified) de la ultima respuesta buena de cada url.
+ * Con ellos hacemos peticiones condicionales y GitHub contesta 304 sin gastar rate limit.
+ */
+
+@Entity
+public class HttpValidator {
+
+    @PrimaryKey
+    @NonNull
+    public final String url;
+    public final String etag;
+    public final String lastModified;
+
+    public HttpValidator(@NonNull String url, String etag, String lastModified) {
+        this.url = url;
+        this.etag = etag;
+        this.lastModified = lastModified;
+    }
+}
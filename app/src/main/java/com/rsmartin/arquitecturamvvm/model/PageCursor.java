@@ -0,0 +1,42 @@
+package com.rsmartin.arquitecturamvvm.model;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * Por donde va la descarga paginada de una lista (repos de un usuario, contributors de un repo).
+ *
+ * lastPage es la ultima pagina guardada sin huecos; si la app muere a mitad, PaginatedFetcher
+ * sigue desde lastPage + 1 hasta totalPages.
+ */
+
+@Entity(tableName = "page_cursor")
+public class PageCursor {
+
+    @PrimaryKey
+    @NonNull
+    public final String key;
+    public final int lastPage;
+    public final int totalPages;
+    public final long updatedAt;
+
+    public PageCursor(@NonNull String key, int lastPage, int totalPages, long updatedAt) {
+        this.key = key;
+        this.lastPage = lastPage;
+        this.totalPages = totalPages;
+        this.updatedAt = updatedAt;
+    }
+
+    public boolean isComplete(){
+        return lastPage >= totalPages;
+    }
+
+    public static String reposKey(String owner){
+        return "repos/" + owner;
+    }
+
+    public static String contributorsKey(String owner, String name){
+        return "contributors/" + owner + "/" + name;
+    }
+}
@@ -6,6 +6,8 @@ import androidx.room.Index;
 
 import com.google.gson.annotations.SerializedName;
 
+import java.util.Objects;
+
 /**
  * https://api.github.com/users/jakewharton/repos
  */
@@ -30,6 +32,9 @@ public class Repo {
     @Embedded(prefix = "owner_")
     public final Owner owner;
 
+    public long fetchedAt; //Cuando lo bajamos del Servicio, lo rellenamos al guardar en Room
+    public long lastAccessed; //Ultima vez que se ha enseñado, para CacheEvictor (ver AccessTracker)
+
     public Repo(int id, String name, String fullName,
                 String description, int stars, Owner owner) {
         this.id = id;
@@ -40,6 +45,32 @@ public class Repo {
         this.owner = owner;
     }
 
+    /**
+     * Igualdad por contenido. fetchedAt y lastAccessed no cuentan: son de la cache,
+     * no cambian lo que se enseña.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if(this == o){
+            return true;
+        }
+        if(o == null || getClass() != o.getClass()){
+            return false;
+        }
+        Repo repo = (Repo) o;
+        return id == repo.id
+                && stars == repo.stars
+                && Objects.equals(name, repo.name)
+                && Objects.equals(fullName, repo.fullName)
+                && Objects.equals(description, repo.description)
+                && Objects.equals(owner, repo.owner);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, name, fullName, description, stars, owner);
+    }
+
     public static class Owner{
         @SerializedName("login")
         public final String login;
@@ -50,5 +81,22 @@ public class Repo {
             this.login = login;
             this.url = url;
         }
+
+        @Override
+        public boolean equals(Object o) {
+            if(this == o){
+                return true;
+            }
+            if(o == null || getClass() != o.getClass()){
+                return false;
+            }
+            Owner owner = (Owner) o;
+            return Objects.equals(login, owner.login) && Objects.equals(url, owner.url);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(login, url);
+        }
     }
 }
@@ -0,0 +1,23 @@
+package com.rsmartin.arquitecturamvvm.model;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+
+/**
+ * Indice de texto completo sobre los repos que tenemos en Room.
+ *
+ * Es una tabla FTS4 de contenido externo: no duplica las filas, lee el texto de Repo
+ * (mismo rowid) y Room crea los triggers que la mantienen al dia en cada insertRepos.
+ */
+
+@Fts4(contentEntity = Repo.class)
+@Entity(tableName = "repo_fts")
+public class RepoFts {
+
+    public String name;
+    public String fullName;
+    public String description;
+    @ColumnInfo(name = "owner_login")
+    public String ownerLogin;
+}
@@ -0,0 +1,29 @@
+package com.rsmartin.arquitecturamvvm.model;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Index;
+
+/**
+ * Un repo dentro de una busqueda y en que posicion sale.
+ * Cada pagina nueva solo añade sus filas, no reescribe la busqueda entera.
+ */
+
+@Entity(tableName = "search_result_item",
+        primaryKeys = {"query", "position"},
+        indices = {@Index("repo_id")})
+public class RepoSearchItem {
+
+    @NonNull
+    public final String query;
+    public final int position;
+    @ColumnInfo(name = "repo_id")
+    public final int repoId;
+
+    public RepoSearchItem(@NonNull String query, int position, int repoId) {
+        this.query = query;
+        this.position = position;
+        this.repoId = repoId;
+    }
+}
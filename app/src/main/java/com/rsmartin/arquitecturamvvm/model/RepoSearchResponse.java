@@ -2,7 +2,6 @@ package com.rsmartin.arquitecturamvvm.model;
 
 import com.google.gson.annotations.SerializedName;
 
-import java.util.ArrayList;
 import java.util.List;
 
 public class RepoSearchResponse {
@@ -15,14 +14,6 @@ public class RepoSearchResponse {
     public Integer nextPage;
 
 
-    public List<Integer> getRepoIds(){
-        List<Integer> repoIds = new ArrayList<>();
-        for(Repo repo : items) {
-            repoIds.add(repo.id);
-        }
-        return repoIds;
-    }
-
     public int getTotal() {
         return total;
     }
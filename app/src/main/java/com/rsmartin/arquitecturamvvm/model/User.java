@@ -4,6 +4,8 @@ import androidx.room.Entity;
 
 import com.google.gson.annotations.SerializedName;
 
+import java.util.Objects;
+
 /**
  * https://api.github.com/users/jakewharton
  */
@@ -24,6 +26,8 @@ public class User {
     @SerializedName("blog")
     public final String blog;
 
+    public long fetchedAt;
+
     public User(String login, String avatarUrl, String name,
                 String company, String reposUrl, String blog) {
         this.login = login;
@@ -57,4 +61,37 @@ public class User {
     public String getBlog() {
         return blog;
     }
+
+    public long getFetchedAt() {
+        return fetchedAt;
+    }
+
+    public void setFetchedAt(long fetchedAt) {
+        this.fetchedAt = fetchedAt;
+    }
+
+    /**
+     * Igualdad por contenido, sin fetchedAt (igual que Repo).
+     */
+    @Override
+    public boolean equals(Object o) {
+        if(this == o){
+            return true;
+        }
+        if(o == null || getClass() != o.getClass()){
+            return false;
+        }
+        User user = (User) o;
+        return Objects.equals(login, user.login)
+                && Objects.equals(avatarUrl, user.avatarUrl)
+                && Objects.equals(name, user.name)
+                && Objects.equals(company, user.company)
+                && Objects.equals(reposUrl, user.reposUrl)
+                && Objects.equals(blog, user.blog);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(login, avatarUrl, name, company, reposUrl, blog);
+    }
 }
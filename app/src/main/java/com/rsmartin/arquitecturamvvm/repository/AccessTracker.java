@@ -0,0 +1,72 @@
+package com.rsmartin.arquitecturamvvm.repository;
+
+import androidx.annotation.WorkerThread;
+
+import com.rsmartin.arquitecturamvvm.db.EvictionDao;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Apunta en memoria que repos, listas de repos y busquedas se han enseñado, y CacheEvictor
+ * lo pasa a la columna lastAccessed de golpe antes de desalojar. Asi leer no cuesta una
+ * escritura en Room cada vez.
+ *
+ * Si la app muere antes de guardarlo se pierde: esas filas se quedan con el lastAccessed
+ * de cuando se bajaron, que es lo peor que puede pasar.
+ */
+
+@Singleton
+public class AccessTracker {
+
+    private final Set<String> owners = new HashSet<>();
+    private final Set<String> repos = new HashSet<>(); //owner + "/" + name
+    private final Set<String> searches = new HashSet<>();
+
+    @Inject
+    public AccessTracker() {
+    }
+
+    public synchronized void owner(String owner){
+        owners.add(owner);
+    }
+
+    public synchronized void repo(String owner, String name){
+        repos.add(owner + "/" + name);
+    }
+
+    public synchronized void search(String query){
+        searches.add(query);
+    }
+
+    /**
+     * Se llama dentro de una transaccion en diskIO.
+     */
+    @WorkerThread
+    public void flush(EvictionDao dao, long now){
+        Set<String> ownersCopy;
+        Set<String> reposCopy;
+        Set<String> searchesCopy;
+        synchronized (this){
+            ownersCopy = new HashSet<>(owners);
+            reposCopy = new HashSet<>(repos);
+            searchesCopy = new HashSet<>(searches);
+            owners.clear();
+            repos.clear();
+            searches.clear();
+        }
+        for(String owner : ownersCopy){
+            dao.touchOwner(owner, now);
+        }
+        for(String repo : reposCopy){
+            int slash = repo.indexOf('/');
+            dao.touchRepo(repo.substring(0, slash), repo.substring(slash + 1), now);
+        }
+        for(String query : searchesCopy){
+            dao.touchSearch(query, now);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.rsmartin.arquitecturamvvm.repository;
+
+import android.util.Log;
+
+import androidx.annotation.WorkerThread;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import com.rsmartin.arquitecturamvvm.AppExecutors;
+import com.rsmartin.arquitecturamvvm.BuildConfig;
+import com.rsmartin.arquitecturamvvm.db.EvictionDao;
+import com.rsmartin.arquitecturamvvm.db.GitHubDb;
+import com.rsmartin.arquitecturamvvm.db.HttpValidatorDao;
+import com.rsmartin.arquitecturamvvm.model.PageCursor;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Mantiene GitHubDb dentro de un presupuesto de filas y de bytes (ver Budget), quitando
+ * lo que hace mas tiempo que no se enseña (lastAccessed, ver AccessTracker).
+ *
+ * Orden: primero las busquedas (y sus posiciones), luego contributors y por ultimo repos que
+ * ya no salen en ninguna busqueda, borrando antes sus contributors por la clave ajena.
+ * Nunca se deja una lista a medias con pinta de completa: los contributors se quitan por repo
+ * enteros, y si se quitan repos de un owner el resto de su lista caduca (fetchedAt = 0). En los
+ * dos casos se borra el PageCursor, para que PaginatedFetcher no siga una descarga sin la base.
+ * Si se ha borrado algo:
+ * - Se tiran los validadores HTTP, porque un 304 sobre filas borradas dejaria la pantalla vacia.
+ * - Se vacia MemoryCache.
+ * - Se compacta con VACUUM.
+ * Si aun asi el fichero pasa de maxBytes, se repite con la mitad de filas.
+ *
+ * Corre en diskIO cada intervalHours desde que se llama a start() (en GithubApp.onCreate).
+ */
+
+@Singleton
+public class CacheEvictor {
+
+    private static final String TAG = "CacheEvictor";
+    private static final int MAX_BYTE_ROUNDS = 3;
+
+    private final GitHubDb db;
+    private final EvictionDao evictionDao;
+    private final HttpValidatorDao validatorDao;
+    private final MemoryCache memoryCache;
+    private final AccessTracker accessTracker;
+    private final AppExecutors appExecutors;
+    private final Budget budget;
+
+    private final AtomicBoolean started = new AtomicBoolean(false);
+
+    @Inject
+    public CacheEvictor(GitHubDb db, EvictionDao evictionDao, HttpValidatorDao validatorDao,
+                        MemoryCache memoryCache, AccessTracker accessTracker, AppExecutors appExecutors) {
+        this(db, evictionDao, validatorDao, memoryCache, accessTracker, appExecutors, Budget.fromBuildConfig());
+    }
+
+    public CacheEvictor(GitHubDb db, EvictionDao evictionDao, HttpValidatorDao validatorDao,
+                        MemoryCache memoryCache, AccessTracker accessTracker, AppExecutors appExecutors,
+                        Budget budget) {
+        this.db = db;
+        this.evictionDao = evictionDao;
+        this.validatorDao = validatorDao;
+        this.memoryCache = memoryCache;
+        this.accessTracker = accessTracker;
+        this.appExecutors = appExecutors;
+        this.budget = budget;
+    }
+
+    /**
+     * Programa el desalojo periodico. Se puede llamar varias veces, solo cuenta la primera.
+     */
+    public void start(){
+        if(started.compareAndSet(false, true)){
+            appExecutors.scheduler().scheduleWithFixedDelay(() -> appExecutors.diskIO().execute(this::evict),
+                    1, TimeUnit.HOURS.toMinutes(budget.intervalHours), TimeUnit.MINUTES);
+        }
+    }
+
+    @WorkerThread
+    public Result evict(){
+        Result result = new Result();
+        result.bytesBefore = databaseBytes();
+
+        runEviction(budget.maxSearches, budget.maxRepos, budget.maxContributors, result, true);
+        if(result.total() > 0){
+            vacuum();
+        }
+
+        int searches = budget.maxSearches;
+        int repos = budget.maxRepos;
+        int contributors = budget.maxContributors;
+        for(int round = 0; round < MAX_BYTE_ROUNDS && databaseBytes() > budget.maxBytes; round++){
+            searches /= 2;
+            repos /= 2;
+            contributors /= 2;
+            int before = result.total();
+            runEviction(searches, repos, contributors, result, false);
+            if(result.total() == before){
+                break; //Lo que queda no se puede quitar (repos de busquedas que caben)
+            }
+            vacuum();
+        }
+
+        if(result.total() > 0){
+            memoryCache.clear();
+        }
+        result.bytesAfter = databaseBytes();
+        Log.d(TAG, result.toString());
+        return result;
+    }
+
+    private void runEviction(int maxSearches, int maxRepos, int maxContributors, Result result,
+                             boolean flushAccesses){
+        db.runInTransaction(() -> {
+            if(flushAccesses){
+                accessTracker.flush(evictionDao, System.currentTimeMillis());
+            }
+            int before = result.total();
+            evictRows(maxSearches, maxRepos, maxContributors, result);
+            if(result.total() > before){
+                validatorDao.deleteAll();
+            }
+        });
+    }
+
+    private void evictRows(int maxSearches, int maxRepos, int maxContributors, Result result){
+        int extraSearches = evictionDao.countSearches() - maxSearches;
+        if(extraSearches > 0){
+            result.searches += evictionDao.deleteOldestSearches(extraSearches);
+            evictionDao.deleteOrphanSearchItems();
+        }
+
+        int extraContributors = evictionDao.countContributors() - maxContributors;
+        if(extraContributors > 0){
+            // Repos enteros hasta llegar: cada grupo tiene al menos uno, asi que no hacen falta mas
+            for(EvictionDao.ContributorGroup group : evictionDao.findOldestContributorGroups(extraContributors)){
+                if(extraContributors <= 0){
+                    break;
+                }
+                extraContributors -= deleteContributors(group, result);
+            }
+        }
+
+        int extraRepos = evictionDao.countRepos() - maxRepos;
+        if(extraRepos > 0){
+            Set<String> owners = new HashSet<>();
+            for(EvictionDao.RepoKey key : evictionDao.findEvictableRepos(extraRepos)){
+                deleteContributors(key, result); //Los hijos primero, por la clave ajena
+                evictionDao.deleteRepo(key.ownerLogin, key.name);
+                owners.add(key.ownerLogin);
+                result.repos++;
+            }
+            for(String owner : owners){ //Su lista de repos se ha quedado a medias
+                evictionDao.expireOwner(owner);
+                evictionDao.deletePageCursor(PageCursor.reposKey(owner));
+            }
+        }
+    }
+
+    private int deleteContributors(EvictionDao.RepoKey key, Result result){
+        int deleted = evictionDao.deleteContributors(key.ownerLogin, key.name);
+        evictionDao.deletePageCursor(PageCursor.contributorsKey(key.ownerLogin, key.name));
+        result.contributors += deleted;
+        return deleted;
+    }
+
+    /**
+     * VACUUM no puede ir dentro de una transaccion. Despues vaciamos el WAL para que el
+     * espacio se note tambien en disco.
+     */
+    private void vacuum(){
+        SupportSQLiteDatabase database = db.getOpenHelper().getWritableDatabase();
+        database.execSQL("VACUUM");
+        database.query("PRAGMA wal_checkpoint(TRUNCATE)").close();
+    }
+
+    private long databaseBytes(){
+        String path = db.getOpenHelper().getWritableDatabase().getPath();
+        return new File(path).length() + new File(path + "-wal").length();
+    }
+
+    public static class Budget {
+        public final int maxSearches;
+        public final int maxRepos;
+        public final int maxContributors;
+        public final long maxBytes;
+        public final int intervalHours;
+
+        public Budget(int maxSearches, int maxRepos, int maxContributors, long maxBytes, int intervalHours) {
+            this.maxSearches = maxSearches;
+            this.maxRepos = maxRepos;
+            this.maxContributors = maxContributors;
+            this.maxBytes = maxBytes;
+            this.intervalHours = intervalHours;
+        }
+
+        public static Budget fromBuildConfig(){
+            return new Budget(BuildConfig.CACHE_MAX_SEARCHES, BuildConfig.CACHE_MAX_REPOS,
+                    BuildConfig.CACHE_MAX_CONTRIBUTORS, BuildConfig.CACHE_MAX_DB_MB * 1024L * 1024L,
+                    BuildConfig.CACHE_EVICTION_HOURS);
+        }
+    }
+
+    public static class Result {
+        public int searches;
+        public int repos;
+        public int contributors;
+        public long bytesBefore;
+        public long bytesAfter;
+
+        int total(){
+            return searches + repos + contributors;
+        }
+
+        @Override
+        public String toString() {
+            return "evicted searches=" + searches + " repos=" + repos + " contributors=" + contributors
+                    + " bytes " + bytesBefore + " -> " + bytesAfter;
+        }
+    }
+}
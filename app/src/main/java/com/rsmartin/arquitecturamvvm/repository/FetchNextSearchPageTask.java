@@ -3,15 +3,13 @@ package com.rsmartin.arquitecturamvvm.repository;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
+import com.rsmartin.arquitecturamvvm.AppExecutors;
 import com.rsmartin.arquitecturamvvm.api.ApiResponse;
 import com.rsmartin.arquitecturamvvm.api.WebServiceApi;
 import com.rsmartin.arquitecturamvvm.db.GitHubDb;
 import com.rsmartin.arquitecturamvvm.model.RepoSearchResponse;
 import com.rsmartin.arquitecturamvvm.model.RepoSearchResult;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import retrofit2.Response;
 
 /**
@@ -25,13 +23,26 @@ public class FetchNextSearchPageTask implements Runnable{
     private final String query;
     private final WebServiceApi githubService;
     private final GitHubDb db;
+    private final MemoryCache memoryCache;
+    private final SearchPrefetcher prefetcher;
+    private final AppExecutors appExecutors;
 
-    public FetchNextSearchPageTask(String query, WebServiceApi githubService, GitHubDb db) {
+    public FetchNextSearchPageTask(String query, WebServiceApi githubService, GitHubDb db,
+                                   MemoryCache memoryCache, SearchPrefetcher prefetcher,
+                                   AppExecutors appExecutors) {
         this.query = query;
+        this.appExecutors = appExecutors;
         this.githubService = githubService;
         this.db = db;
+        this.memoryCache = memoryCache;
+        this.prefetcher = prefetcher;
     }
 
+    /**
+     * Se lanza en diskRead: solo lee por donde va la busqueda. La peticion va por networkIO
+     * y la escritura por diskIO, que es el unico que escribe en Room. Alli se vuelve a mirar
+     * next antes de añadir la pagina, por si otra tarea ya la ha guardado.
+     */
     @Override
     public void run() {
         RepoSearchResult current = db.repoDao().findSearchResult(query);
@@ -42,26 +53,21 @@ public class FetchNextSearchPageTask implements Runnable{
         final Integer nextPage = current.next;
         if(nextPage == null){
             liveData.postValue(Resource.success(false));
+            return;
         }
+        appExecutors.networkIO().execute(() -> fetch(nextPage));
+    }
+
+    private void fetch(int nextPage){
         try {
-            Response<RepoSearchResponse> response = githubService.searchRepos(query, nextPage).execute();
-            ApiResponse<RepoSearchResponse> apiResponse = new ApiResponse<RepoSearchResponse>(response);
+            ApiResponse<RepoSearchResponse> apiResponse = prefetcher.take(query, nextPage);
+            if(apiResponse == null){ //No la teniamos pedida por adelantado
+                Response<RepoSearchResponse> response = githubService.searchRepos(query, nextPage).execute();
+                apiResponse = new ApiResponse<RepoSearchResponse>(response);
+            }
             if(apiResponse.isSuccessful()){
-                List<Integer> ids = new ArrayList<>();
-                ids.addAll(current.repoIds);
-                ids.addAll(apiResponse.body.getRepoIds());
-                RepoSearchResult merged = new RepoSearchResult(query, ids, apiResponse.body.total, apiResponse.getNextPage());
-
-                try{
-                    db.beginTransaction();
-                    db.repoDao().insert(merged);
-                    db.repoDao().insertRepos(apiResponse.body.getItems());
-                    db.setTransactionSuccessful();
-                } finally {
-                    db.endTransaction();
-                }
-                liveData.postValue(Resource.success(apiResponse.getNextPage() != null));
-
+                ApiResponse<RepoSearchResponse> page = apiResponse;
+                appExecutors.diskIO().execute(() -> save(nextPage, page));
             } else {
                 liveData.postValue(Resource.error(apiResponse.errorMessage, true));
             }
@@ -70,6 +76,28 @@ public class FetchNextSearchPageTask implements Runnable{
         }
     }
 
+    private void save(int nextPage, ApiResponse<RepoSearchResponse> apiResponse){
+        try {
+            RepoSearchResult current = db.repoDao().findSearchResult(query);
+            if(current == null || current.next == null || current.next != nextPage){
+                //Mientras la pediamos se ha guardado esta pagina o se ha rehecho la busqueda
+                liveData.postValue(Resource.success(current != null && current.next != null));
+                return;
+            }
+            RepoSearchResult merged = new RepoSearchResult(query, apiResponse.body.total, apiResponse.getNextPage());
+            merged.fetchedAt = current.fetchedAt; //La busqueda caduca desde la primera pagina
+            merged.lastAccessed = System.currentTimeMillis();
+            RepoRepository.stampRepos(apiResponse.body.getItems(), System.currentTimeMillis());
+
+            db.repoDao().insertSearchPage(merged, apiResponse.body.getItems(), false); //Solo añadimos esta pagina
+            memoryCache.invalidateRepos(apiResponse.body.getItems());
+            prefetcher.onPageCommitted(query);
+            liveData.postValue(Resource.success(apiResponse.getNextPage() != null));
+        } catch (Exception e){
+            liveData.postValue(Resource.error(e.getMessage(), true));
+        }
+    }
+
     LiveData<Resource<Boolean>> getLiveData(){
         return liveData;
     }
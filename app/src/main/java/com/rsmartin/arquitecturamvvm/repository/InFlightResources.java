@@ -0,0 +1,94 @@
+package com.rsmartin.arquitecturamvvm.repository;
+
+import androidx.annotation.MainThread;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Registro de los recursos que se estan cargando en este momento.
+ *
+ * Si dos pantallas piden el mismo recurso a la vez (misma clave) comparten el mismo
+ * NetworkBoundResource, es decir, una sola llamada al servicio y una sola escritura en Room.
+ * El recurso sale del registro cuando ha terminado con la red: si es Settleable (los
+ * NetworkBoundResource) cuando avisa con whenSettled, que en stale-while-revalidate es despues
+ * de guardar o fallar la revalidacion aunque ya haya emitido SUCCESS. Si no, cuando deja de
+ * estar en LOADING.
+ *
+ * Solo se usa desde el Hilo principal, igual que NetworkBoundResource.
+ */
+
+@Singleton
+public class InFlightResources {
+
+    private final Map<String, LiveData<?>> inFlight = new HashMap<>();
+
+    @Inject
+    public InFlightResources() {
+    }
+
+    @MainThread
+    @SuppressWarnings("unchecked")
+    public <T> LiveData<Resource<T>> share(String key, Factory<T> factory){
+        LiveData<Resource<T>> running = (LiveData<Resource<T>>) inFlight.get(key);
+        if(running != null){
+            return running;
+        }
+
+        LiveData<Resource<T>> resource = factory.create();
+        inFlight.put(key, resource);
+        if(resource instanceof Settleable){
+            Observer<Resource<T>> keepAlive = value -> {}; //Que siga aunque nadie lo observe
+            resource.observeForever(keepAlive);
+            ((Settleable) resource).whenSettled(() -> {
+                resource.removeObserver(keepAlive);
+                release(key, resource);
+            });
+            return resource;
+        }
+        resource.observeForever(new Observer<Resource<T>>() {
+            @Override
+            public void onChanged(Resource<T> value) {
+                if(value != null && value.status == Status.LOADING){
+                    return;
+                }
+                resource.removeObserver(this);
+                release(key, resource);
+            }
+        });
+        return resource;
+    }
+
+    @MainThread
+    private void release(String key, LiveData<?> resource){
+        if(inFlight.get(key) == resource){ //Ya ha terminado, los siguientes crean uno nuevo
+            inFlight.remove(key);
+        }
+    }
+
+    @MainThread
+    public boolean isInFlight(String key){
+        return inFlight.containsKey(key);
+    }
+
+    public interface Factory<T> {
+        LiveData<Resource<T>> create();
+    }
+
+    /**
+     * Un recurso que sabe cuando ha terminado con la red (guardado o fallo incluidos),
+     * que no tiene por que coincidir con dejar de estar en LOADING.
+     */
+    public interface Settleable {
+        /**
+         * done se ejecuta una vez, en el Hilo principal; en el momento si ya ha terminado.
+         */
+        @MainThread
+        void whenSettled(Runnable done);
+    }
+}
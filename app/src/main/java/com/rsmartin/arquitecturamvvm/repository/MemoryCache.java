@@ -0,0 +1,130 @@
+package com.rsmartin.arquitecturamvvm.repository;
+
+import android.util.LruCache;
+
+import com.rsmartin.arquitecturamvvm.model.Contributor;
+import com.rsmartin.arquitecturamvvm.model.Repo;
+import com.rsmartin.arquitecturamvvm.model.User;
+
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Cache en memoria (LRU) por delante de Room.
+ *
+ * loadFromDb la usa para emitir el dato al momento, sin esperar a la query de Room (que se
+ * lanza igual y es la que se sigue despues, ver InstantLiveData). Se escribe al guardar en
+ * saveCallResult y se invalida cuando otra insercion puede haber cambiado la fila. Las claves
+ * son las mismas que usan RepoDao.load(login, name) y UserDao.findByLogin(login).
+ *
+ * El tamaño se mide en filas: un repo o un usuario cuentan 1 y una lista de contributors
+ * cuenta tantas como elementos tenga.
+ */
+
+@Singleton
+public class MemoryCache {
+
+    private final LruCache<String, Repo> repos;
+    private final LruCache<String, User> users;
+    private final LruCache<String, List<Contributor>> contributors;
+
+    @Inject
+    public MemoryCache() {
+        this(200, 100, 1000);
+    }
+
+    public MemoryCache(int maxRepos, int maxUsers, int maxContributors) {
+        repos = new LruCache<>(maxRepos);
+        users = new LruCache<>(maxUsers);
+        contributors = new LruCache<String, List<Contributor>>(maxContributors) {
+            @Override
+            protected int sizeOf(String key, List<Contributor> value) {
+                return Math.max(1, value.size());
+            }
+        };
+    }
+
+    private static String repoKey(String owner, String name){
+        return owner + "/" + name;
+    }
+
+    public Repo getRepo(String owner, String name){
+        return repos.get(repoKey(owner, name));
+    }
+
+    public void putRepo(Repo repo){
+        if(repo.owner != null){
+            repos.put(repoKey(repo.owner.login, repo.name), repo);
+        }
+    }
+
+    public void invalidateRepo(String owner, String name){
+        repos.remove(repoKey(owner, name));
+    }
+
+    public void invalidateRepos(List<Repo> inserted){
+        for(Repo repo : inserted){
+            if(repo.owner != null){
+                repos.remove(repoKey(repo.owner.login, repo.name));
+            }
+        }
+    }
+
+    public User getUser(String login){
+        return users.get(login);
+    }
+
+    public void putUser(User user){
+        users.put(user.login, user);
+    }
+
+    public void invalidateUser(String login){
+        users.remove(login);
+    }
+
+    public List<Contributor> getContributors(String owner, String name){
+        return contributors.get(repoKey(owner, name));
+    }
+
+    public void putContributors(String owner, String name, List<Contributor> list){
+        contributors.put(repoKey(owner, name), list);
+    }
+
+    public void invalidateContributors(String owner, String name){
+        contributors.remove(repoKey(owner, name));
+    }
+
+    public void clear(){
+        repos.evictAll();
+        users.evictAll();
+        contributors.evictAll();
+    }
+
+    public Stats stats(){
+        return new Stats(repos.hitCount() + users.hitCount() + contributors.hitCount(),
+                repos.missCount() + users.missCount() + contributors.missCount(),
+                repos.size() + users.size() + contributors.size());
+    }
+
+    /**
+     * Contadores para dimensionar la cache.
+     */
+    public static class Stats {
+        public final int hits;
+        public final int misses;
+        public final int size;
+
+        public Stats(int hits, int misses, int size) {
+            this.hits = hits;
+            this.misses = misses;
+            this.size = size;
+        }
+
+        public float hitRate(){
+            int total = hits + misses;
+            return total == 0 ? 0f : (float) hits / total;
+        }
+    }
+}
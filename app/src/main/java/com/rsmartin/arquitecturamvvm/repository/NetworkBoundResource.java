@@ -1,5 +1,7 @@
 package com.rsmartin.arquitecturamvvm.repository;
 
+import android.util.Log;
+
 import androidx.annotation.MainThread;
 import androidx.annotation.WorkerThread;
 import androidx.lifecycle.LiveData;
@@ -8,8 +10,17 @@ import androidx.lifecycle.Observer;
 
 import com.rsmartin.arquitecturamvvm.AppExecutors;
 import com.rsmartin.arquitecturamvvm.api.ApiResponse;
+import com.rsmartin.arquitecturamvvm.db.HttpValidatorDao;
+import com.rsmartin.arquitecturamvvm.model.HttpValidator;
+import com.rsmartin.arquitecturamvvm.utils.DistinctLiveData;
+import com.rsmartin.arquitecturamvvm.utils.MetricsSink;
+import com.rsmartin.arquitecturamvvm.utils.MetricsSink.Outcome;
+import com.rsmartin.arquitecturamvvm.utils.MetricsSink.Phase;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
 
 /***
  * Clase generica que nos proporciona un recurso de Room o Servicio.
@@ -21,36 +32,116 @@ import java.util.Objects;
  * LiveDatas en uno y solo tenemos uno que observar.
  *
  * Primero enseñamos los datos de Room y luego actualizamos si decidimos desde el Servidor.
+ *
+ * Con tag y MetricsSink apunta cuanto tarda cada fase (ver MetricsSink.Phase) y como acaba.
+ *
+ * Lo que sale de loadFromDb pasa por DistinctLiveData y setValue compara con el ultimo Resource,
+ * asi que si Room vuelve a emitir las mismas filas los observadores no se enteran.
+ *
+ * Despues de guardar se vuelve a llamar a loadFromDb, salvo que savedResult devuelva el resultado:
+ * entonces se emite ese directamente y se sigue observando el dbSource de siempre.
+ *
+ * El ETag / Last-Modified de la respuesta (ver ConditionalRequestInterceptor) se guarda en
+ * diskIO cuando saveCallResult ya esta en Room, nunca antes: un 304 solo vale si el cuerpo esta
+ * guardado. Si el guardado falla se emite ERROR con lo que haya en Room.
+ *
+ * Con parsesOnNetworkIO saveCallResult lee la respuesta en networkIO y va pasando trozos a
+ * diskIO con saveChunk, para no tener al unico hilo que escribe esperando a la red.
+ *
+ * asLiveData es Settleable: avisa cuando ya no queda nada pendiente con la red (ni guardar), asi
+ * InFlightResources no suelta el recurso al emitir SUCCESS con una revalidacion en marcha.
  */
 
 public abstract class NetworkBoundResource<ResultType, RequestType> {
 
+    private static final String TAG = "NetworkBoundResource";
+
     private final AppExecutors appExecutors;
-    private final MediatorLiveData<Resource<ResultType>> result = new MediatorLiveData<>();
+    private final Result result = new Result();
+    private final String tag;
+    private final MetricsSink metrics;
+    private final long createdAt = System.nanoTime();
+    private boolean completed; //Ya hemos apuntado TOTAL
+    private boolean retriedWithoutValidator;
+    private final AtomicReference<RuntimeException> chunkError = new AtomicReference<>(); //Ver saveChunk
 
     @MainThread //Esta etiqueta significa que solo puede ser llamado desde el Hilo principal
     public NetworkBoundResource(AppExecutors appExecutors) {
+        this(appExecutors, null, MetricsSink.NONE);
+    }
+
+    @MainThread
+    public NetworkBoundResource(AppExecutors appExecutors, String tag, MetricsSink metrics) {
         this.appExecutors = appExecutors;
+        this.tag = tag;
+        this.metrics = tag == null ? MetricsSink.NONE : metrics;
         result.setValue(Resource.loading(null));
-        LiveData<ResultType> dbSource = loadFromDb();
+        LiveData<ResultType> dbSource = DistinctLiveData.create(loadFromDb());
 
         result.addSource(dbSource, new Observer<ResultType>() {
             @Override
             public void onChanged(ResultType data) {
                 result.removeSource(dbSource);
+                recordSince(Phase.LOAD_FROM_DB, createdAt);
 
                 if(NetworkBoundResource.this.shouldFetchData(data)){
                     NetworkBoundResource.this.fetchFromNetwork(dbSource);
                 } else {
+                    NetworkBoundResource.this.metrics.recordOutcome(tag, Outcome.CACHE_HIT);
                     result.addSource(dbSource, (ResultType newData)->{
                         NetworkBoundResource.this.setValue(Resource.success(newData));
                     });
+                    if(NetworkBoundResource.this.shouldRevalidate(data)){
+                        NetworkBoundResource.this.metrics.recordOutcome(tag, Outcome.REVALIDATE);
+                        NetworkBoundResource.this.revalidate(dbSource);
+                    } else {
+                        result.settle();
+                    }
                 }
             }
         });
     }
 
+    /**
+     * Stale-while-revalidate: ya estamos enseñando el dato de Room como SUCCESS,
+     * lo pedimos al Servicio en segundo plano y al guardarlo volvemos a cargar de loadFromDb
+     * (puede que el dato viniera de memoria y no de Room). Con savedResult no hace falta:
+     * dbSource sigue enganchado y lo que emita Room despues de guardar sera igual.
+     * Si falla nos quedamos con lo que teniamos, sin emitir error.
+     */
+    private void revalidate(final LiveData<ResultType> dbSource){
+        long callStart = System.nanoTime();
+        LiveData<ApiResponse<RequestType>> apiResponse = createCall();
+        result.addSource(apiResponse, response -> {
+            result.removeSource(apiResponse);
+            recordResponse(response, callStart);
+            if(response.isNotModified()){ // 304: lo de Room sigue valiendo, no hay nada que guardar
+                notModified();
+            } else if(response.isRateLimited()){ // Ya refrescaremos cuando haya presupuesto
+                onFetchFailed();
+                result.settle();
+            } else if(response.isSuccessful()){
+                saveAndReload(response, saved -> {
+                    result.settle();
+                    if(saved != null){
+                        setValue(Resource.success(saved));
+                        return;
+                    }
+                    result.removeSource(dbSource);
+                    result.addSource(traced(DistinctLiveData.create(loadFromDb()), Phase.RELOAD), newData -> setValue(Resource.success(newData)));
+                }, message -> { //Seguimos con lo que teniamos
+                    onFetchFailed();
+                    result.settle();
+                });
+            } else {
+                onFetchFailed();
+                result.settle();
+            }
+        });
+    }
+
     private void fetchFromNetwork(final LiveData<ResultType> dbSource){
+        long callStart = System.nanoTime();
         LiveData<ApiResponse<RequestType>> apiResponse = createCall();
         result.addSource(dbSource, new Observer<ResultType>() {
             @Override
@@ -61,27 +152,262 @@ public abstract class NetworkBoundResource<ResultType, RequestType> {
         result.addSource(apiResponse, response -> {
             result.removeSource(apiResponse);
             result.removeSource(dbSource);
-            if(response.isSuccessful()){
-                appExecutors.diskIO().execute(new Runnable() { //Guardamos la info del Servicio en Room desde un hilo secundario
-                    @Override
-                    public void run() {
-                        NetworkBoundResource.this.saveCallResult(NetworkBoundResource.this.processResponse(response));
-                        appExecutors.mainThread().execute(()->{ // Mostramos los datos que hemos leido desde el Hilo principal
-                            result.addSource(NetworkBoundResource.this.loadFromDb(), newData ->
-                                    NetworkBoundResource.this.setValue(Resource.success(newData)));
-                        });
+            recordResponse(response, callStart);
+            if(response.isNotModified() && retryWithoutValidator(response, dbSource)){
+                return;
+            } else if(response.isNotModified()){ // 304: nos ahorramos saveCallResult y volver a leer Room
+                notModified();
+                result.addSource(dbSource, newData ->
+                        setValue(Resource.success(newData)));
+            } else if(response.isRateLimited()){ // Sin rate limit: servimos lo que haya en Room
+                onFetchFailed();
+                result.addSource(dbSource, newData -> setValue(newData != null
+                        ? Resource.success(newData)
+                        : Resource.error(response.errorMessage, null)));
+                result.settle();
+            } else if(response.isSuccessful()){
+                saveAndReload(response, saved -> {
+                    result.settle();
+                    if(saved != null && result.hasActiveObservers()){ // Sin volver a consultar Room
+                        setValue(Resource.success(saved));
+                        reattach(dbSource);
+                        return;
                     }
+                    // Mostramos los datos que hemos leido desde el Hilo principal
+                    result.addSource(traced(DistinctLiveData.create(NetworkBoundResource.this.loadFromDb()), Phase.RELOAD), newData ->
+                            NetworkBoundResource.this.setValue(Resource.success(newData)));
+                }, message -> {
+                    onFetchFailed();
+                    result.addSource(dbSource, newData -> setValue(Resource.error(message, newData)));
+                    result.settle();
                 });
             } else { // Peticion ha fallado
                 onFetchFailed();
                 result.addSource(dbSource, newData ->
                         setValue(Resource.error(response.errorMessage, newData)));
+                result.settle();
+            }
+        });
+    }
+
+    /**
+     * onNotModified en diskIO y, cuando ya ha actualizado Room, el recurso ha terminado.
+     */
+    @MainThread
+    private void notModified(){
+        appExecutors.diskIO().execute(() -> {
+            try{
+                onNotModified();
+            } finally {
+                appExecutors.mainThread().execute(result::settle);
+            }
+        });
+    }
+
+    /**
+     * Un 304 cuando vamos a red porque no tenemos los datos: el validador no corresponde a lo que
+     * hay en Room (p.ej. se guardo y luego no llego a guardarse el cuerpo). Lo borramos y pedimos
+     * otra vez, ya sin condiciones. Solo una vez por recurso.
+     */
+    @MainThread
+    private boolean retryWithoutValidator(ApiResponse<RequestType> response, LiveData<ResultType> dbSource){
+        HttpValidatorDao validatorDao = validators();
+        if(retriedWithoutValidator || validatorDao == null || response.url == null){
+            return false;
+        }
+        retriedWithoutValidator = true;
+        appExecutors.diskIO().execute(() -> {
+            validatorDao.delete(response.url);
+            appExecutors.mainThread().execute(() -> fetchFromNetwork(dbSource));
+        });
+        return true;
+    }
+
+    /**
+     * Guardamos la info del Servicio en Room desde un hilo secundario y luego ejecutamos
+     * reload en el Hilo principal con lo que haya dado savedResult (o null), o failed si
+     * saveCallResult ha lanzado una excepcion (o se ha deshecho su lote).
+     * Si hay WriteBehindQueue la escritura va en lote con otras.
+     */
+    private void saveAndReload(ApiResponse<RequestType> response, OnSaved<ResultType> reload,
+                               OnFailed failed){
+        AtomicReference<RequestType> item = new AtomicReference<>();
+        WriteBehindQueue queue = writeBehind();
+        if(queue != null){
+            AtomicReference<ResultType> saved = new AtomicReference<>();
+            queue.enqueue(() -> item.set(processAndSave(response)),
+                    () -> saved.set(afterCommit(response, item.get())),
+                    error -> {
+                        if(error == null){
+                            reload.onSaved(saved.get());
+                        } else {
+                            appExecutors.diskIO().execute(this::saveFailed);
+                            failed.onFailed(errorMessage(error));
+                        }
+                    });
+            return;
+        }
+        if(parsesOnNetworkIO()){
+            chunkError.set(null);
+            appExecutors.networkIO().execute(() -> {
+                try{
+                    item.set(processAndSave(response));
+                } catch (RuntimeException e){
+                    chunkError.compareAndSet(null, e);
+                }
+                // diskIO tiene un solo hilo: esto va detras del ultimo trozo
+                appExecutors.diskIO().execute(() ->
+                        finishSave(response, item.get(), chunkError.get(), reload, failed));
+            });
+            return;
+        }
+        appExecutors.diskIO().execute(() -> {
+            RuntimeException error = null;
+            try{
+                item.set(processAndSave(response));
+            } catch (RuntimeException e){
+                error = e;
+            }
+            finishSave(response, item.get(), error, reload, failed);
+        });
+    }
+
+    @WorkerThread
+    private void finishSave(ApiResponse<RequestType> response, RequestType item, RuntimeException error,
+                            OnSaved<ResultType> reload, OnFailed failed){
+        if(error != null){
+            Log.e(TAG, "Error saving " + tag, error);
+            saveFailed();
+            appExecutors.mainThread().execute(() -> failed.onFailed(errorMessage(error)));
+            return;
+        }
+        ResultType saved = afterCommit(response, item);
+        appExecutors.mainThread().execute(() -> reload.onSaved(saved));
+    }
+
+    @WorkerThread
+    private void saveFailed(){
+        try{
+            onSaveFailed();
+        } catch (RuntimeException e){
+            Log.e(TAG, "Error in onSaveFailed " + tag, e);
+        }
+    }
+
+    /**
+     * Con parsesOnNetworkIO: saveCallResult guarda cada trozo con esto. Se escriben en diskIO en
+     * el mismo orden; si uno falla los siguientes ya no se escriben y el recurso acaba en ERROR.
+     */
+    @WorkerThread
+    protected final void saveChunk(Runnable write){
+        appExecutors.diskIO().execute(() -> {
+            if(chunkError.get() != null){
+                return;
+            }
+            try{
+                write.run();
+            } catch (RuntimeException e){
+                chunkError.compareAndSet(null, e);
+            }
+        });
+    }
+
+    @WorkerThread
+    private RequestType processAndSave(ApiResponse<RequestType> response){
+        long start = System.nanoTime();
+        RequestType item = processResponse(response);
+        long processed = System.nanoTime();
+        metrics.recordPhase(tag, Phase.PROCESS_RESPONSE, processed - start);
+        saveCallResult(item);
+        recordSince(Phase.SAVE, processed);
+        return item;
+    }
+
+    /**
+     * Con saveCallResult ya en Room: el validador HTTP, onSaveCommitted y savedResult.
+     * Si algo de esto falla los datos siguen guardados, asi que no es un error del recurso.
+     */
+    @WorkerThread
+    private ResultType afterCommit(ApiResponse<RequestType> response, RequestType item){
+        try{
+            HttpValidatorDao validatorDao = validators();
+            HttpValidator validator = response.validator();
+            if(validatorDao != null && validator != null){
+                validatorDao.insert(validator);
+            }
+            onSaveCommitted(item);
+            return savedResult(item);
+        } catch (RuntimeException e){
+            Log.e(TAG, "Error after saving " + tag, e);
+            return null;
+        }
+    }
+
+    private static String errorMessage(Throwable error){
+        return error.getMessage() != null ? error.getMessage() : error.toString();
+    }
+
+    /**
+     * Vuelve a enganchar dbSource despues de emitir savedResult. addSource entrega en el momento
+     * el ultimo valor que tenia, que es de antes de guardar, y ese lo saltamos. Lo siguiente que
+     * de Room ya es posterior a la escritura, y si es igual a lo emitido setValue lo descarta.
+     */
+    @MainThread
+    private void reattach(LiveData<ResultType> dbSource){
+        boolean[] attaching = {true};
+        result.addSource(dbSource, newData -> {
+            if(!attaching[0]){
+                setValue(Resource.success(newData));
             }
         });
+        attaching[0] = false;
+    }
+
+    private void recordResponse(ApiResponse<RequestType> response, long callStart){
+        recordSince(Phase.NETWORK, callStart);
+        metrics.recordBytes(tag, response.contentLength);
+        if(response.isNotModified()){
+            metrics.recordOutcome(tag, Outcome.NOT_MODIFIED);
+        } else if(response.isRateLimited()){
+            metrics.recordOutcome(tag, Outcome.RATE_LIMITED);
+        } else if(response.isSuccessful()){
+            metrics.recordOutcome(tag, Outcome.NETWORK_FETCH);
+        } else {
+            metrics.recordOutcome(tag, Outcome.ERROR);
+        }
+    }
+
+    private void recordSince(Phase phase, long start){
+        metrics.recordPhase(tag, phase, System.nanoTime() - start);
+    }
+
+    /**
+     * Apunta cuanto tarda source en emitir por primera vez. Sin metricas devuelve source tal cual.
+     */
+    @MainThread
+    private LiveData<ResultType> traced(LiveData<ResultType> source, Phase phase){
+        if(metrics == MetricsSink.NONE){
+            return source;
+        }
+        long start = System.nanoTime();
+        MediatorLiveData<ResultType> traced = new MediatorLiveData<>();
+        boolean[] first = {true};
+        traced.addSource(source, value -> {
+            if(first[0]){
+                first[0] = false;
+                recordSince(phase, start);
+            }
+            traced.setValue(value);
+        });
+        return traced;
     }
 
     @MainThread
     private void setValue(Resource<ResultType> newValue){
+        if(!completed && newValue.status != Status.LOADING){
+            completed = true;
+            recordSince(Phase.TOTAL, createdAt);
+        }
         if(!Objects.equals(result.getValue(), newValue)){
             result.setValue(newValue);
         }
@@ -90,11 +416,50 @@ public abstract class NetworkBoundResource<ResultType, RequestType> {
     @MainThread
     protected abstract boolean shouldFetchData(ResultType data);
 
+    /**
+     * Solo se llama si shouldFetchData ha dicho que no. Si devuelve true se sirve el dato
+     * de Room y se refresca en segundo plano (ver revalidate).
+     */
+    @MainThread
+    protected boolean shouldRevalidate(ResultType data){
+        return false;
+    }
+
     @MainThread
     protected abstract LiveData<ResultType> loadFromDb();
 
     protected void onFetchFailed(){}
 
+    /**
+     * El Servicio ha contestado 304 a la peticion condicional. Sirve para actualizar
+     * fetchedAt sin reescribir las filas.
+     */
+    @WorkerThread
+    protected void onNotModified(){}
+
+    /**
+     * Donde se guardan los validadores HTTP (ETag / Last-Modified) de las respuestas.
+     * Con null no se guardan y las peticiones de este recurso no llevan condiciones.
+     */
+    protected HttpValidatorDao validators(){
+        return null;
+    }
+
+    /**
+     * Con true saveCallResult se llama en networkIO (p.ej. para leer un ResponseBody segun llega)
+     * y tiene que escribir en Room solo a traves de saveChunk. No se combina con writeBehind.
+     */
+    protected boolean parsesOnNetworkIO(){
+        return false;
+    }
+
+    /**
+     * Si devuelve una cola, saveCallResult se agrupa con otras escrituras en una sola transaccion.
+     */
+    protected WriteBehindQueue writeBehind(){
+        return null;
+    }
+
     public LiveData<Resource<ResultType>> asLiveData(){
         return result;
     }
@@ -104,9 +469,79 @@ public abstract class NetworkBoundResource<ResultType, RequestType> {
         return response.body;
     }
 
+    /**
+     * Solo escrituras en Room: con WriteBehindQueue, si el lote falla se deshace y se vuelve
+     * a ejecutar. Si no se puede guardar, que lance la excepcion y el recurso acaba en ERROR.
+     */
     @WorkerThread
     protected abstract void saveCallResult(RequestType item);
 
+    /**
+     * Se llama en diskIO cuando lo de saveCallResult ya esta en Room. Aqui va lo que no se
+     * puede deshacer con la transaccion: MemoryCache, lanzar otras descargas...
+     */
+    @WorkerThread
+    protected void onSaveCommitted(RequestType item){}
+
+    /**
+     * Se llama en diskIO si saveCallResult ha fallado. Sirve para que lo que haya quedado a
+     * medias en Room no cuente como fresco (fetchedAt a 0...).
+     */
+    @WorkerThread
+    protected void onSaveFailed(){}
+
+    /**
+     * Se llama despues de saveCallResult. Si se puede construir el resultado a partir de lo que
+     * se acaba de guardar, se devuelve y se emite sin esperar a Room; tiene que ser igual (equals)
+     * a lo que devolveria loadFromDb. Con null se vuelve a cargar de loadFromDb.
+     */
+    @WorkerThread
+    protected ResultType savedResult(RequestType item){
+        return null;
+    }
+
     @MainThread
     protected abstract LiveData<ApiResponse<RequestType>> createCall();
+
+    /**
+     * El LiveData de asLiveData. settle() se llama cuando ya no queda nada pendiente con la red.
+     */
+    private class Result extends MediatorLiveData<Resource<ResultType>>
+            implements InFlightResources.Settleable {
+
+        private boolean settled;
+        private final List<Runnable> waiting = new ArrayList<>();
+
+        @MainThread
+        @Override
+        public void whenSettled(Runnable done) {
+            if(settled){
+                done.run();
+            } else {
+                waiting.add(done);
+            }
+        }
+
+        @MainThread
+        void settle(){
+            if(settled){
+                return;
+            }
+            settled = true;
+            for(Runnable done : waiting){
+                done.run();
+            }
+            waiting.clear();
+        }
+    }
+
+    private interface OnSaved<T> {
+        @MainThread
+        void onSaved(T saved);
+    }
+
+    private interface OnFailed {
+        @MainThread
+        void onFailed(String message);
+    }
 }
@@ -0,0 +1,294 @@
+package com.rsmartin.arquitecturamvvm.repository;
+
+import androidx.annotation.WorkerThread;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.rsmartin.arquitecturamvvm.AppExecutors;
+import com.rsmartin.arquitecturamvvm.BuildConfig;
+import com.rsmartin.arquitecturamvvm.api.ApiResponse;
+import com.rsmartin.arquitecturamvvm.api.RateBudget;
+import com.rsmartin.arquitecturamvvm.db.GitHubDb;
+import com.rsmartin.arquitecturamvvm.db.PageCursorDao;
+import com.rsmartin.arquitecturamvvm.model.PageCursor;
+import com.rsmartin.arquitecturamvvm.utils.AbsentLiveData;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import retrofit2.Call;
+
+/**
+ * Descarga las paginas 2..N de una lista despues de que un NetworkBoundResource haya guardado
+ * la primera. Solo si se pide (ver Mode): cada pagina gasta presupuesto de rate limit.
+ *
+ * Como se usa desde un NetworkBoundResource:
+ * - processResponse: se guarda response.getLastPage().
+ * - onSaveCommitted: con la pagina 1 ya guardada se llama a onFirstPageSaved.
+ * - Al crear el recurso se llama a resume, por si la app murio a mitad de una descarga.
+ *
+ * Las paginas se piden a la vez en networkIO (como mucho maxConcurrent, menos hilos de los que
+ * tiene networkIO) y antes de cada una se mira RateBudget, pero se guardan en orden:
+ * - INCREMENTAL: cada una en su transaccion junto con el PageCursor. El LiveData de Room del
+ *   recurso va emitiendo segun se guarda cada pagina, y si algo falla se sigue desde la
+ *   ultima pagina guardada.
+ * - ALL_AT_ONCE: se guardan en memoria hasta tenerlas todas y van juntas en una sola
+ *   transaccion con el PageCursor. Room emite una vez con la lista entera; si falla una
+ *   pagina no se guarda ninguna y el cursor sigue en la 1.
+ */
+
+@Singleton
+public class PaginatedFetcher {
+
+    private final GitHubDb db;
+    private final PageCursorDao cursorDao;
+    private final AppExecutors appExecutors;
+    private final RateBudget rateBudget;
+    private final int maxConcurrent;
+
+    private final ConcurrentHashMap<String, Job<?>> running = new ConcurrentHashMap<>();
+
+    @Inject
+    public PaginatedFetcher(GitHubDb db, PageCursorDao cursorDao, AppExecutors appExecutors,
+                            RateBudget rateBudget) {
+        // Dejamos un hilo de networkIO libre para lo que esta pidiendo la pantalla
+        this(db, cursorDao, appExecutors, rateBudget, Math.max(1, BuildConfig.NETWORK_IO_THREADS - 1));
+    }
+
+    public PaginatedFetcher(GitHubDb db, PageCursorDao cursorDao, AppExecutors appExecutors,
+                            RateBudget rateBudget, int maxConcurrent) {
+        this.db = db;
+        this.cursorDao = cursorDao;
+        this.appExecutors = appExecutors;
+        this.rateBudget = rateBudget;
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    /**
+     * Se llama desde onSaveCommitted con la pagina 1 ya guardada.
+     *
+     * @param lastPage rel="last" de la respuesta, null si solo hay una pagina
+     */
+    @WorkerThread
+    public <T> void onFirstPageSaved(String key, Integer lastPage, PageSource<T> source, Mode mode){
+        if(mode == Mode.FIRST_PAGE || running.containsKey(key)){
+            return; //Ya hay una descarga en marcha de esta lista, que siga ella
+        }
+        PageCursor cursor = new PageCursor(key, 1, lastPage == null ? 1 : lastPage,
+                System.currentTimeMillis());
+        cursorDao.insert(cursor);
+        if(!cursor.isComplete()){
+            start(cursor, source, mode);
+        }
+    }
+
+    /**
+     * Si la descarga de key se quedo a medias, la continua desde la ultima pagina guardada.
+     */
+    public <T> void resume(String key, PageSource<T> source, Mode mode){
+        if(mode == Mode.FIRST_PAGE || running.containsKey(key)){
+            return;
+        }
+        appExecutors.diskRead().execute(() -> {
+            PageCursor cursor = cursorDao.find(key);
+            if(cursor != null && !cursor.isComplete()){
+                start(cursor, source, mode);
+            }
+        });
+    }
+
+    public boolean isRunning(String key){
+        return running.containsKey(key);
+    }
+
+    /**
+     * Paginas guardadas de la descarga en marcha: LOADING con la ultima guardada,
+     * SUCCESS al terminar y ERROR si se ha parado (se puede continuar con resume).
+     */
+    public LiveData<Resource<Integer>> progress(String key){
+        Job<?> job = running.get(key);
+        return job == null ? AbsentLiveData.create() : job.progress;
+    }
+
+    private <T> void start(PageCursor cursor, PageSource<T> source, Mode mode){
+        Job<T> job = new Job<>(cursor, source, mode == Mode.ALL_AT_ONCE);
+        if(running.putIfAbsent(cursor.key, job) == null){
+            job.start();
+        }
+    }
+
+    /**
+     * Que hacer con las paginas que quedan despues de la primera.
+     */
+    public enum Mode {
+        FIRST_PAGE, //Solo la primera, sin PaginatedFetcher
+        INCREMENTAL, //Todas, guardando cada una segun llega su turno
+        ALL_AT_ONCE //Todas, guardadas a la vez al final en una transaccion
+    }
+
+    private class Job<T> {
+        final String key;
+        final int totalPages;
+        final PageSource<T> source;
+        final boolean allAtOnce;
+        final MutableLiveData<Resource<Integer>> progress = new MutableLiveData<>();
+
+        final AtomicInteger nextPage;
+        final AtomicInteger runningWorkers = new AtomicInteger();
+        volatile String error;
+
+        // Paginas que han llegado antes que alguna anterior, esperando su turno. Protegido por this
+        final Map<Integer, List<T>> arrived = new HashMap<>();
+        final Object commitLock = new Object();
+        int committedPage; //Protegido por commitLock
+
+        Job(PageCursor cursor, PageSource<T> source, boolean allAtOnce) {
+            this.key = cursor.key;
+            this.totalPages = cursor.totalPages;
+            this.source = source;
+            this.allAtOnce = allAtOnce;
+            this.committedPage = cursor.lastPage;
+            this.nextPage = new AtomicInteger(cursor.lastPage + 1);
+            progress.postValue(Resource.loading(cursor.lastPage));
+        }
+
+        void start(){
+            int workers = Math.min(maxConcurrent, totalPages - committedPage);
+            runningWorkers.set(workers);
+            for(int i = 0; i < workers; i++){
+                next();
+            }
+        }
+
+        /**
+         * Cada worker coge la siguiente pagina libre y, al tenerla, vuelve aqui. RateBudget decide
+         * si hay que esperar antes de pedirla; mientras espera no ocupa ningun hilo de networkIO.
+         */
+        void next(){
+            int page;
+            if(error != null || (page = nextPage.getAndIncrement()) > totalPages){
+                if(runningWorkers.decrementAndGet() == 0){
+                    appExecutors.diskIO().execute(this::finish);
+                }
+                return;
+            }
+            rateBudget.runNonUrgent(RateBudget.CORE, appExecutors.networkIO(), () -> fetchPage(page), () -> {
+                error = "Rate limit low, paused at page " + page;
+                next();
+            });
+        }
+
+        @WorkerThread
+        void fetchPage(int page){
+            try{
+                ApiResponse<List<T>> response = new ApiResponse<>(source.page(page).execute());
+                if(!response.isSuccessful() || response.body == null){
+                    error = response.errorMessage != null
+                            ? response.errorMessage : "Error loading page " + page;
+                } else {
+                    synchronized (this){
+                        arrived.put(page, response.body);
+                    }
+                    if(!allAtOnce){
+                        appExecutors.diskIO().execute(this::commitReady);
+                    }
+                }
+            } catch (Exception e){
+                error = e.getMessage() != null ? e.getMessage() : e.toString();
+            }
+            next();
+        }
+
+        /**
+         * Guarda las paginas que ya se pueden guardar sin dejar huecos.
+         */
+        @WorkerThread
+        void commitReady(){
+            synchronized (commitLock){
+                while (true){
+                    int page = committedPage + 1;
+                    List<T> items;
+                    synchronized (this){
+                        items = arrived.remove(page);
+                    }
+                    if(items == null){
+                        return;
+                    }
+                    try{
+                        db.runInTransaction(() -> {
+                            source.savePage(page, items);
+                            cursorDao.insert(new PageCursor(key, page, totalPages, System.currentTimeMillis()));
+                        });
+                    } catch (RuntimeException e){
+                        error = e.getMessage() != null ? e.getMessage() : e.toString(); //Paramos, el cursor sigue en la anterior
+                        return;
+                    }
+                    committedPage = page;
+                    progress.postValue(Resource.loading(page));
+                }
+            }
+        }
+
+        /**
+         * ALL_AT_ONCE: si han llegado todas, se guardan en orden en una sola transaccion.
+         */
+        @WorkerThread
+        void commitAll(){
+            synchronized (commitLock){
+                if(error != null){
+                    return; //No guardamos nada, el cursor sigue donde estaba
+                }
+                Map<Integer, List<T>> pages;
+                synchronized (this){
+                    pages = new HashMap<>(arrived);
+                    arrived.clear();
+                }
+                try{
+                    db.runInTransaction(() -> {
+                        for(int page = committedPage + 1; page <= totalPages; page++){
+                            source.savePage(page, pages.get(page));
+                        }
+                        cursorDao.insert(new PageCursor(key, totalPages, totalPages, System.currentTimeMillis()));
+                    });
+                } catch (RuntimeException e){
+                    error = e.getMessage() != null ? e.getMessage() : e.toString();
+                    return;
+                }
+                committedPage = totalPages;
+            }
+        }
+
+        @WorkerThread
+        void finish(){
+            if(allAtOnce){
+                commitAll();
+            } else {
+                commitReady();
+            }
+            running.remove(key, this);
+            synchronized (commitLock){
+                if(committedPage >= totalPages){
+                    progress.postValue(Resource.success(committedPage));
+                } else {
+                    progress.postValue(Resource.error(error, committedPage));
+                }
+            }
+        }
+    }
+
+    public interface PageSource<T> {
+        Call<List<T>> page(int page);
+
+        /**
+         * Se ejecuta en diskIO dentro de la transaccion que tambien guarda el PageCursor.
+         */
+        @WorkerThread
+        void savePage(int page, List<T> items);
+    }
+}
@@ -1,27 +1,40 @@
 package com.rsmartin.arquitecturamvvm.repository;
 
+import androidx.annotation.WorkerThread;
 import androidx.arch.core.util.Function;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.Transformations;
+import androidx.paging.LivePagedListBuilder;
+import androidx.paging.PagedList;
 
+import com.google.gson.Gson;
 import com.rsmartin.arquitecturamvvm.AppExecutors;
-import com.rsmartin.arquitecturamvvm.utils.AbsentLiveData;
+import com.rsmartin.arquitecturamvvm.utils.FreshnessPolicy;
+import com.rsmartin.arquitecturamvvm.utils.InstantLiveData;
+import com.rsmartin.arquitecturamvvm.utils.MetricsSink;
 import com.rsmartin.arquitecturamvvm.utils.RateLimiter;
 import com.rsmartin.arquitecturamvvm.api.ApiResponse;
+import com.rsmartin.arquitecturamvvm.api.RepoStreamParser;
 import com.rsmartin.arquitecturamvvm.api.WebServiceApi;
 import com.rsmartin.arquitecturamvvm.db.GitHubDb;
+import com.rsmartin.arquitecturamvvm.db.HttpValidatorDao;
 import com.rsmartin.arquitecturamvvm.db.RepoDao;
 import com.rsmartin.arquitecturamvvm.model.Contributor;
+import com.rsmartin.arquitecturamvvm.model.PageCursor;
 import com.rsmartin.arquitecturamvvm.model.Repo;
-import com.rsmartin.arquitecturamvvm.model.RepoSearchResponse;
 import com.rsmartin.arquitecturamvvm.model.RepoSearchResult;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+
 /**
  * Se encargara de acceder a nuestro Webservice y a RepoDao
  */
@@ -29,27 +42,82 @@ import javax.inject.Singleton;
 @Singleton
 public class RepoRepository {
 
+    private static final int LOCAL_SEARCH_LIMIT = 50;
+
     private final GitHubDb db;
     private final RepoDao repoDao;
+    private final HttpValidatorDao validatorDao;
     private final WebServiceApi githubService;
     private final AppExecutors appExecutors;
-
-    private RateLimiter<String> repoListRateLimit = new RateLimiter<>(10, TimeUnit.MINUTES);
+    private final InFlightResources inFlight;
+    private final MemoryCache memoryCache;
+    private final WriteBehindQueue writeBehind;
+    private final SearchPrefetcher prefetcher;
+    private final PaginatedFetcher paginator;
+    private final MetricsSink metrics;
+    private final AccessTracker accessTracker;
+
+    private final FreshnessPolicy repoListFreshness = new FreshnessPolicy(10, TimeUnit.MINUTES);
+    private final FreshnessPolicy repoFreshness = new FreshnessPolicy(1, TimeUnit.HOURS);
+    private final FreshnessPolicy contributorFreshness = new FreshnessPolicy(1, TimeUnit.HOURS);
+    private final FreshnessPolicy searchFreshness = new FreshnessPolicy(10, TimeUnit.MINUTES);
+    // Si una revalidacion falla el dato sigue caducado: que no se repita cada vez que se abre la pantalla
+    private final RateLimiter<String> revalidations = new RateLimiter<>(1, TimeUnit.MINUTES);
+
+    private final RepoStreamParser streamParser;
+
+    private final PagedList.Config pagedConfig = new PagedList.Config.Builder()
+            .setPageSize(30)
+            .setInitialLoadSizeHint(60)
+            .setPrefetchDistance(30) //El margen que cargamos fuera de la parte visible
+            .setEnablePlaceholders(false)
+            .build();
 
     @Inject
-    public RepoRepository(AppExecutors appExecutors, GitHubDb db, RepoDao repoDao, WebServiceApi githubService) {
+    public RepoRepository(AppExecutors appExecutors, GitHubDb db, RepoDao repoDao,
+                          HttpValidatorDao validatorDao, WebServiceApi githubService,
+                          InFlightResources inFlight, MemoryCache memoryCache, WriteBehindQueue writeBehind,
+                          SearchPrefetcher prefetcher, PaginatedFetcher paginator,
+                          MetricsSink metrics, AccessTracker accessTracker, Gson gson) {
         this.appExecutors = appExecutors;
+        this.inFlight = inFlight;
+        this.memoryCache = memoryCache;
+        this.writeBehind = writeBehind;
+        this.prefetcher = prefetcher;
+        this.paginator = paginator;
+        this.metrics = metrics;
+        this.accessTracker = accessTracker;
+        this.streamParser = new RepoStreamParser(gson, 50);
         this.db = db;
         this.repoDao = repoDao;
+        this.validatorDao = validatorDao;
         this.githubService = githubService;
     }
 
     public LiveData<Resource<List<Repo>>> loadRepos(String owner){
-        return new NetworkBoundResource<List<Repo>, List<Repo>>(appExecutors){
+        return loadRepos(owner, PaginatedFetcher.Mode.FIRST_PAGE);
+    }
+
+    /**
+     * La primera pagina la trae el NetworkBoundResource y, segun mode, el resto PaginatedFetcher.
+     * Si ya se esta cargando esta lista se comparte, con el mode con el que se empezo.
+     */
+    public LiveData<Resource<List<Repo>>> loadRepos(String owner, PaginatedFetcher.Mode mode){
+        String key = PageCursor.reposKey(owner);
+        accessTracker.owner(owner);
+        paginator.resume(key, repoPages(owner), mode);
+        return inFlight.share(key, () -> new NetworkBoundResource<List<Repo>, ResponseBody>(appExecutors, "loadRepos", metrics){
+
+            private Integer lastPage;
 
             @Override
             protected boolean shouldFetchData(List<Repo> data) {
-                return data == null || data.isEmpty() || repoListRateLimit.shouldFetch(owner);
+                return data == null || data.isEmpty();
+            }
+
+            @Override
+            protected boolean shouldRevalidate(List<Repo> data) {
+                return repoListFreshness.isStale(oldestRepoFetch(data)) && revalidations.shouldFetch(key);
             }
 
             @Override
@@ -58,145 +126,469 @@ public class RepoRepository {
             }
 
             @Override
-            protected void saveCallResult(List<Repo> item) {
-                repoDao.insertRepos(item);
+            protected boolean parsesOnNetworkIO() {
+                return true;
+            }
+
+            /**
+             * En networkIO: se lee el JSON segun llega y cada trozo se guarda en diskIO, en su transaccion.
+             */
+            @Override
+            protected void saveCallResult(ResponseBody body) {
+                long now = repoListFreshness.now();
+                try{
+                    streamParser.parse(body, (repos, totalCount) -> saveChunk(() -> saveRepos(repos, now)));
+                } catch (IOException e){
+                    throw new IllegalStateException("loadRepos: error reading " + owner, e);
+                } finally {
+                    body.close();
+                }
             }
 
             @Override
-            protected LiveData<ApiResponse<List<Repo>>> createCall() {
-                return githubService.getRepos(owner);
+            protected void onSaveFailed() {
+                repoDao.touchRepositories(owner, 0); //Puede haber quedado a medias: que no cuente como fresca
             }
 
             @Override
-            protected void onFetchFailed(){
-                repoListRateLimit.reset(owner);
+            protected void onSaveCommitted(ResponseBody body) {
+                paginator.onFirstPageSaved(key, lastPage, repoPages(owner), mode);
             }
 
-        }.asLiveData();
+            @Override
+            protected HttpValidatorDao validators() {
+                return validatorDao;
+            }
+
+            @Override
+            protected void onNotModified() {
+                repoDao.touchRepositories(owner, repoListFreshness.now());
+            }
+
+            @Override
+            protected LiveData<ApiResponse<ResponseBody>> createCall() {
+                return githubService.getReposStream(owner);
+            }
+
+            @Override
+            protected ResponseBody processResponse(ApiResponse<ResponseBody> response) {
+                lastPage = response.getLastPage();
+                return response.body;
+            }
+
+        }.asLiveData());
+    }
+
+    /**
+     * Los repos de owner leidos por ventanas desde Room. No va al Servicio: para refrescarlos
+     * se sigue usando loadRepos, y al guardar Room invalida y recarga solo la ventana actual.
+     */
+    public LiveData<PagedList<Repo>> loadReposPaged(String owner){
+        accessTracker.owner(owner);
+        return new LivePagedListBuilder<>(repoDao.loadRepositoriesPaged(owner), pagedConfig)
+                .setFetchExecutor(appExecutors.diskRead())
+                .build();
     }
 
     public LiveData<Resource<Repo>> loadRepo(String owner, String name){
-        return new NetworkBoundResource<Repo, Repo>(appExecutors){
+        accessTracker.repo(owner, name);
+        return inFlight.share("repo/" + owner + "/" + name, () -> new NetworkBoundResource<Repo, Repo>(appExecutors, "loadRepo", metrics){
 
             @Override
             protected boolean shouldFetchData(Repo data) {
                 return data == null;
             }
 
+            @Override
+            protected boolean shouldRevalidate(Repo data) {
+                return repoFreshness.isStale(data.fetchedAt) && revalidations.shouldFetch("repo/" + owner + "/" + name);
+            }
+
             @Override
             protected LiveData<Repo> loadFromDb() {
-                return repoDao.load(owner, name);
+                LiveData<Repo> fromDb = Transformations.map(repoDao.load(owner, name), repo -> {
+                    if(repo != null){
+                        memoryCache.putRepo(repo);
+                    }
+                    return repo;
+                });
+                Repo cached = memoryCache.getRepo(owner, name);
+                //Lo de memoria sale ya, sin esperar a la query, y luego seguimos a Room
+                return cached != null ? InstantLiveData.create(cached, fromDb) : fromDb;
             }
 
             @Override
             protected void saveCallResult(Repo item) {
+                item.fetchedAt = repoFreshness.now();
+                item.lastAccessed = item.fetchedAt;
                 repoDao.insert(item);
             }
 
+            @Override
+            protected void onSaveCommitted(Repo item) {
+                memoryCache.putRepo(item);
+            }
+
+            @Override
+            protected Repo savedResult(Repo item) {
+                return item;
+            }
+
+            @Override
+            protected WriteBehindQueue writeBehind() {
+                return writeBehind;
+            }
+
+            @Override
+            protected HttpValidatorDao validators() {
+                return validatorDao;
+            }
+
+            @Override
+            protected void onNotModified() {
+                repoDao.touchRepo(owner, name, repoFreshness.now());
+                memoryCache.invalidateRepo(owner, name);
+            }
+
             @Override
             protected LiveData<ApiResponse<Repo>> createCall() {
                 return githubService.getRepo(owner, name);
             }
-        }.asLiveData();
+        }.asLiveData());
     }
 
     public LiveData<Resource<List<Contributor>>> loadContributors(String owner, String name){
-        return new NetworkBoundResource<List<Contributor>, List<Contributor>>(appExecutors){
+        return loadContributors(owner, name, PaginatedFetcher.Mode.FIRST_PAGE);
+    }
+
+    /**
+     * Como loadRepos: con ALL_AT_ONCE la lista se ve de una vez cuando estan todas las paginas.
+     */
+    public LiveData<Resource<List<Contributor>>> loadContributors(String owner, String name,
+                                                                  PaginatedFetcher.Mode mode){
+        String key = PageCursor.contributorsKey(owner, name);
+        accessTracker.repo(owner, name); //Los contributors se desalojan con su repo
+        paginator.resume(key, contributorPages(owner, name), mode);
+        return inFlight.share(key, () -> new NetworkBoundResource<List<Contributor>, List<Contributor>>(appExecutors, "loadContributors", metrics){
+
+            private Integer lastPage;
 
             @Override
             protected boolean shouldFetchData(List<Contributor> data) {
                 return data == null || data.isEmpty();
             }
 
+            @Override
+            protected boolean shouldRevalidate(List<Contributor> data) {
+                long oldest = Long.MAX_VALUE;
+                for(Contributor contributor : data){
+                    oldest = Math.min(oldest, contributor.getFetchedAt());
+                }
+                return contributorFreshness.isStale(oldest) && revalidations.shouldFetch(key);
+            }
+
             @Override
             protected LiveData<List<Contributor>> loadFromDb() {
-                return repoDao.loadContributors(owner, name);
+                LiveData<List<Contributor>> fromDb = Transformations.map(repoDao.loadContributors(owner, name), contributors -> {
+                    if(contributors != null && !contributors.isEmpty()){
+                        memoryCache.putContributors(owner, name, contributors);
+                    }
+                    return contributors;
+                });
+                List<Contributor> cached = memoryCache.getContributors(owner, name);
+                //Seguimos a Room para ver las paginas que guarde PaginatedFetcher despues
+                return cached != null ? InstantLiveData.create(cached, fromDb) : fromDb;
             }
 
             @Override
             protected void saveCallResult(List<Contributor> contributors) {
-                for(Contributor contributor: contributors){
-                    contributor.setRepoName(name);
-                    contributor.setRepoOwner(owner);
-                }
-                db.beginTransaction();
-                try{
-                    repoDao.createRepoIfNotExists(new Repo(Repo.UNKNOWN_ID, name,
-                            owner + "/" + name, "", 0,
-                            new Repo.Owner(owner, null)));
-                    repoDao.insertContributors(contributors);
-                    db.setTransactionSuccessful();
-                } finally {
-                    db.endTransaction();
+                db.runInTransaction(() -> saveContributors(owner, name, contributors));
+            }
+
+            @Override
+            protected void onSaveCommitted(List<Contributor> contributors) {
+                if(lastPage == null || mode == PaginatedFetcher.Mode.FIRST_PAGE){
+                    memoryCache.putContributors(owner, name, contributors);
+                } else { //Faltan paginas, que se recargue de Room para verlas llegar
+                    memoryCache.invalidateContributors(owner, name);
                 }
+                paginator.onFirstPageSaved(key, lastPage, contributorPages(owner, name), mode);
+            }
+
+            @Override
+            protected WriteBehindQueue writeBehind() {
+                return writeBehind;
+            }
+
+            @Override
+            protected HttpValidatorDao validators() {
+                return validatorDao;
+            }
+
+            @Override
+            protected void onNotModified() {
+                repoDao.touchContributors(owner, name, contributorFreshness.now());
+                memoryCache.invalidateContributors(owner, name);
             }
 
             @Override
             protected LiveData<ApiResponse<List<Contributor>>> createCall() {
                 return githubService.getContributors(owner, name);
             }
-        }.asLiveData();
+
+            @Override
+            protected List<Contributor> processResponse(ApiResponse<List<Contributor>> response) {
+                lastPage = response.getLastPage();
+                return response.body;
+            }
+        }.asLiveData());
     }
 
+    /**
+     * Una sola FetchNextSearchPageTask por busqueda: si ya se esta pidiendo la siguiente pagina
+     * (p.ej. onItemAtEndLoaded varias veces seguidas) se devuelve la que esta en marcha.
+     */
     public LiveData<Resource<Boolean>> searchNextPage(String query){
-        FetchNextSearchPageTask fetchNextSearchPageTask = new FetchNextSearchPageTask(query,
-                githubService, db);
-        appExecutors.networkIO().execute(fetchNextSearchPageTask);
-        return  fetchNextSearchPageTask.getLiveData();
+        return inFlight.share("search-next/" + query, () -> {
+            FetchNextSearchPageTask fetchNextSearchPageTask = new FetchNextSearchPageTask(query,
+                    githubService, db, memoryCache, prefetcher, appExecutors);
+            appExecutors.diskRead().execute(fetchNextSearchPageTask);
+            return fetchNextSearchPageTask.getLiveData();
+        });
+    }
+
+    /**
+     * La busqueda leida por ventanas desde Room. Cuando se llega al final de lo que hay guardado
+     * se pide la siguiente pagina al Servicio (la primera la pide search(query)).
+     */
+    public LiveData<PagedList<Repo>> searchPaged(String query){
+        accessTracker.search(query);
+        return new LivePagedListBuilder<>(repoDao.loadSearchResultsPaged(query), pagedConfig)
+                .setFetchExecutor(appExecutors.diskRead())
+                .setBoundaryCallback(new PagedList.BoundaryCallback<Repo>() {
+                    @Override
+                    public void onItemAtEndLoaded(Repo itemAtEnd) {
+                        searchNextPage(query);
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Avisa de por donde va el scroll de la busqueda para pedir la siguiente pagina antes de llegar al final.
+     */
+    public void onSearchScrolled(String query, int lastVisiblePosition, int itemCount){
+        prefetcher.onScrolled(query, lastVisiblePosition, itemCount);
     }
 
     public LiveData<Resource<List<Repo>>> search(String query){
-        return new NetworkBoundResource<List<Repo>, RepoSearchResponse>(appExecutors){
+        prefetcher.setQuery(query); //Si habia una pagina pedida de otra busqueda se descarta
+        accessTracker.search(query);
+        return inFlight.share("search/" + query, () -> new NetworkBoundResource<List<Repo>, ResponseBody>(appExecutors, "search", metrics){
+
+            private RepoSearchResult searchResult; //La ultima fila de busqueda que nos ha dado Room
+            private Integer nextPage; //Del header link, lo rellena processResponse antes de saveCallResult
+            private List<Repo> savedRepos; //Lo que ha guardado saveCallResult, en el orden de las posiciones
 
             @Override
             protected boolean shouldFetchData(List<Repo> data) {
-                return data == null;
+                return searchResult == null; //data pueden ser coincidencias locales, lo que manda es la cabecera
+            }
+
+            @Override
+            protected boolean shouldRevalidate(List<Repo> data) {
+                return searchResult != null && searchFreshness.isStale(searchResult.fetchedAt)
+                        && revalidations.shouldFetch("search/" + query);
             }
 
+            /**
+             * Si esta query ya se hizo, sus resultados en orden. Si no, lo que encuentre el indice
+             * FTS entre los repos que ya tenemos: se enseña como LOADING mientras llega la
+             * respuesta del Servicio, y sin conexion se queda como resultado del error.
+             */
             @Override
             protected LiveData<List<Repo>> loadFromDb() {
                 return Transformations.switchMap(repoDao.search(query),
                         new Function<RepoSearchResult, LiveData<List<Repo>>>() {
                     @Override
                     public LiveData<List<Repo>> apply(RepoSearchResult searchData) {
+                        searchResult = searchData;
                         if(searchData == null){
-                            return AbsentLiveData.create();
+                            return repoDao.searchLocal(query, LOCAL_SEARCH_LIMIT);
                         } else {
-                            return repoDao.loadOrdered(searchData.repoIds);
+                            return repoDao.loadSearchResults(query);
                         }
                     }
                 });
             }
 
             @Override
-            protected void saveCallResult(RepoSearchResponse item) {
-                List<Integer> repoIds = item.getRepoIds();
-                RepoSearchResult repoSearchResult = new RepoSearchResult(query, repoIds,
-                        item.getTotal(), item.getNextPage());
-                db.beginTransaction();
+            protected boolean parsesOnNetworkIO() {
+                return true;
+            }
+
+            /**
+             * En networkIO: se lee el JSON segun llega y cada trozo se guarda en diskIO, en su transaccion.
+             *
+             * Los trozos sobrescriben las posiciones desde el principio sin borrar nada; las que
+             * sobran de la busqueda anterior y la cabecera nueva se guardan en el ultimo saveChunk,
+             * cuando ya se ha leido todo. Si la lectura falla a mitad de una revalidacion no nos
+             * quedamos con la lista cortada, solo con el principio ya actualizado.
+             */
+            @Override
+            protected void saveCallResult(ResponseBody body) {
+                long now = searchFreshness.now();
+                List<Repo> saved = new ArrayList<>();
+                RepoStreamParser.Result parsed;
                 try{
-                    repoDao.insertRepos(item.getItems());
-                    repoDao.insert(repoSearchResult);
-                    db.setTransactionSuccessful();
+                    parsed = streamParser.parse(body, (repos, totalCount) -> {
+                        // fetchedAt = 0 hasta leer la respuesta entera: a medias no es fresca
+                        RepoSearchResult repoSearchResult = new RepoSearchResult(query, totalCount, nextPage);
+                        repoSearchResult.lastAccessed = now;
+                        stampRepos(repos, now);
+                        int from = saved.size();
+                        saveChunk(() -> {
+                            repoDao.insertSearchChunk(repoSearchResult, repos, from);
+                            memoryCache.invalidateRepos(repos);
+                        });
+                        saved.addAll(repos);
+                    });
+                } catch (IOException e){
+                    throw new IllegalStateException("search: error reading " + query, e);
                 } finally {
-                    db.endTransaction();
+                    body.close();
                 }
+                RepoSearchResult header = new RepoSearchResult(query, parsed.totalCount, nextPage);
+                header.fetchedAt = now;
+                header.lastAccessed = now;
+                int count = saved.size();
+                saveChunk(() -> repoDao.finishSearchChunks(header, count)); //Sin resultados tambien guarda la cabecera
+                savedRepos = saved;
             }
 
             @Override
-            protected LiveData<ApiResponse<RepoSearchResponse>> createCall() {
-                return githubService.searchRepos(query);
+            protected void onSaveFailed() {
+                repoDao.touchSearch(query, 0); //Puede haber quedado a medias: que no cuente como fresca
             }
 
             @Override
-            protected RepoSearchResponse processResponse(ApiResponse<RepoSearchResponse> response){
-                RepoSearchResponse body = response.body;
-                if(body != null){
-                    body.setNextPage(response.getNextPage());
-                }
-                return body;
+            protected void onSaveCommitted(ResponseBody body) {
+                prefetcher.onPageCommitted(query);
+            }
+
+            /**
+             * La lista que acabamos de guardar ya esta en el orden de loadSearchResults: se enseña
+             * sin esperar a que el switchMap de loadFromDb cambie de la FTS a la busqueda guardada.
+             */
+            @Override
+            protected List<Repo> savedResult(ResponseBody body) {
+                return savedRepos;
             }
 
-        }.asLiveData();
+            @Override
+            protected HttpValidatorDao validators() {
+                return validatorDao;
+            }
+
+            @Override
+            protected void onNotModified() {
+                repoDao.touchSearch(query, searchFreshness.now());
+            }
+
+            @Override
+            protected LiveData<ApiResponse<ResponseBody>> createCall() {
+                return githubService.searchReposStream(query);
+            }
+
+            @Override
+            protected ResponseBody processResponse(ApiResponse<ResponseBody> response){
+                nextPage = response.getNextPage();
+                return response.body;
+            }
+
+        }.asLiveData());
+    }
+
+    private PaginatedFetcher.PageSource<Repo> repoPages(String owner){
+        return new PaginatedFetcher.PageSource<Repo>() {
+            @Override
+            public Call<List<Repo>> page(int page) {
+                return githubService.getRepos(owner, page);
+            }
+
+            @Override
+            public void savePage(int page, List<Repo> repos) {
+                saveRepos(repos, repoListFreshness.now());
+            }
+        };
+    }
+
+    private PaginatedFetcher.PageSource<Contributor> contributorPages(String owner, String name){
+        return new PaginatedFetcher.PageSource<Contributor>() {
+            @Override
+            public Call<List<Contributor>> page(int page) {
+                return githubService.getContributors(owner, name, page);
+            }
+
+            @Override
+            public void savePage(int page, List<Contributor> contributors) {
+                saveContributors(owner, name, contributors);
+                memoryCache.invalidateContributors(owner, name);
+            }
+        };
+    }
+
+    /**
+     * Una pagina (o trozo) de repos de un owner, la traiga quien la traiga.
+     */
+    @WorkerThread
+    private void saveRepos(List<Repo> repos, long now){
+        stampRepos(repos, now);
+        repoDao.insertRepos(repos);
+        memoryCache.invalidateRepos(repos); //Invalidar no hace daño aunque la transaccion se deshaga
+    }
+
+    /**
+     * Una pagina de contributors, sea la primera (loadContributors) o las demas (PaginatedFetcher).
+     * Hay que llamarla dentro de una transaccion.
+     */
+    @WorkerThread
+    private void saveContributors(String owner, String name, List<Contributor> contributors){
+        long now = contributorFreshness.now();
+        for(Contributor contributor : contributors){
+            contributor.setRepoName(name);
+            contributor.setRepoOwner(owner);
+            contributor.setFetchedAt(now);
+        }
+        repoDao.createRepoIfNotExists(placeholderRepo(owner, name, now));
+        repoDao.insertContributors(contributors);
+    }
+
+    /**
+     * El padre de los contributors (clave ajena) cuando aun no tenemos el repo.
+     */
+    private static Repo placeholderRepo(String owner, String name, long now){
+        Repo repo = new Repo(Repo.UNKNOWN_ID, name, owner + "/" + name, "", 0,
+                new Repo.Owner(owner, null));
+        repo.lastAccessed = now;
+        return repo;
+    }
+
+    /**
+     * Recien bajados cuentan tambien como accedidos: el REPLACE pisa lastAccessed.
+     */
+    static void stampRepos(List<Repo> repos, long fetchedAt){
+        for(Repo repo : repos){
+            repo.fetchedAt = fetchedAt;
+            repo.lastAccessed = fetchedAt;
+        }
+    }
+
+    private static long oldestRepoFetch(List<Repo> repos){
+        long oldest = Long.MAX_VALUE;
+        for(Repo repo : repos){
+            oldest = Math.min(oldest, repo.fetchedAt);
+        }
+        return oldest;
     }
 }
@@ -1,11 +1,15 @@
 package com.rsmartin.arquitecturamvvm.repository;
 
+import java.util.Objects;
+
 public class Resource<T> {
 
     public final Status status;
     public final T data;
     public final String message;
 
+    private int hash; //0 = sin calcular, como en String
+
     public Resource(Status status, T data, String message) {
         this.status = status;
         this.data = data;
@@ -23,4 +27,38 @@ public class Resource<T> {
     public static <T> Resource<T> error(String msg, T data){
         return new Resource<>(Status.ERROR, data, msg);
     }
+
+    /**
+     * Igualdad por valor, la usa NetworkBoundResource para no emitir dos veces lo mismo.
+     * No usa hashCode: eso recorreria data entera en cada emision, y DistinctLiveData ya la ha
+     * hasheado. Lo normal es que data sea la misma instancia con otro status, y Objects.equals
+     * lo resuelve sin recorrerla; si es otra lista, equals para en el primer elemento distinto.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if(this == o){
+            return true;
+        }
+        if(o == null || getClass() != o.getClass()){
+            return false;
+        }
+        Resource<?> resource = (Resource<?>) o;
+        return status == resource.status
+                && Objects.equals(message, resource.message)
+                && Objects.equals(data, resource.data);
+    }
+
+    /**
+     * Solo para quien meta Resources en un HashMap/HashSet. Se calcula una vez: data no se
+     * modifica despues de emitirla.
+     */
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if(h == 0){
+            h = Objects.hash(status, data, message);
+            hash = h;
+        }
+        return h;
+    }
 }
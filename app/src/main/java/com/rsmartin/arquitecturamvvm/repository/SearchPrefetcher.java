@@ -0,0 +1,209 @@
+package com.rsmartin.arquitecturamvvm.repository;
+
+import androidx.annotation.WorkerThread;
+
+import com.rsmartin.arquitecturamvvm.AppExecutors;
+import com.rsmartin.arquitecturamvvm.BuildConfig;
+import com.rsmartin.arquitecturamvvm.api.ApiResponse;
+import com.rsmartin.arquitecturamvvm.api.RateBudget;
+import com.rsmartin.arquitecturamvvm.api.WebServiceApi;
+import com.rsmartin.arquitecturamvvm.db.GitHubDb;
+import com.rsmartin.arquitecturamvvm.model.RepoSearchResponse;
+import com.rsmartin.arquitecturamvvm.model.RepoSearchResult;
+
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import retrofit2.Response;
+
+/**
+ * Pide por adelantado la siguiente pagina de la busqueda, para que cuando el usuario llegue
+ * al final de la lista FetchNextSearchPageTask solo tenga que guardarla en Room.
+ *
+ * Solo guarda una pagina y solo de la busqueda actual: si cambia la query se descarta.
+ * Si FetchNextSearchPageTask llega mientras la pagina se esta pidiendo, se engancha a esa
+ * peticion (take) en vez de lanzar otra.
+ *
+ * Modos:
+ * - ON_PAGE_SHOWN: en cuanto se guarda la pagina N pedimos la N+1.
+ * - ON_SCROLL: la pedimos cuando faltan menos de threshold elementos para el final.
+ */
+
+@Singleton
+public class SearchPrefetcher {
+
+    public enum Mode {
+        OFF,
+        ON_SCROLL,
+        ON_PAGE_SHOWN
+    }
+
+    private final WebServiceApi githubService;
+    private final GitHubDb db;
+    private final AppExecutors appExecutors;
+    private final RateBudget rateBudget;
+    private final Mode mode;
+    private final int threshold;
+
+    private volatile String currentQuery;
+    private PrefetchedPage ready; //Protegido por this
+    private PrefetchedPage loading; //Protegido por this
+
+    @Inject
+    public SearchPrefetcher(WebServiceApi githubService, GitHubDb db, AppExecutors appExecutors,
+                            RateBudget rateBudget) {
+        this(githubService, db, appExecutors, rateBudget, Mode.ON_SCROLL, 10);
+    }
+
+    public SearchPrefetcher(WebServiceApi githubService, GitHubDb db, AppExecutors appExecutors,
+                            RateBudget rateBudget, Mode mode, int threshold) {
+        this.githubService = githubService;
+        this.db = db;
+        this.appExecutors = appExecutors;
+        this.rateBudget = rateBudget;
+        this.mode = mode;
+        this.threshold = threshold;
+    }
+
+    /**
+     * La busqueda que esta en pantalla. Si cambia tiramos lo que tuvieramos pedido.
+     */
+    public void setQuery(String query){
+        if(!Objects.equals(currentQuery, query)){
+            currentQuery = query;
+            synchronized (this){
+                ready = null;
+            }
+        }
+    }
+
+    public void onPageCommitted(String query){
+        if(mode == Mode.ON_PAGE_SHOWN){
+            prefetch(query);
+        }
+    }
+
+    public void onScrolled(String query, int lastVisiblePosition, int itemCount){
+        if(mode == Mode.ON_SCROLL && itemCount - lastVisiblePosition <= threshold){
+            prefetch(query);
+        }
+    }
+
+    public void prefetch(String query){
+        if(mode == Mode.OFF || !Objects.equals(currentQuery, query)){
+            return;
+        }
+        appExecutors.networkIO().execute(() -> fetch(query));
+    }
+
+    /**
+     * Devuelve la pagina si ya la teniamos pedida y la quita, para que solo se guarde una vez.
+     * Si la peticion ya esta en vuelo esperamos a su respuesta en vez de pedirla otra vez; si
+     * todavia no habia salido (esperando a RateBudget) la cancelamos y que la pida quien llama.
+     * Devuelve null si hay que pedirla.
+     */
+    @WorkerThread
+    public ApiResponse<RepoSearchResponse> take(String query, int page){
+        PrefetchedPage inFlight;
+        synchronized (this){
+            PrefetchedPage prefetched = ready;
+            if(prefetched != null && prefetched.matches(query, page)){
+                ready = null;
+                return prefetched.response;
+            }
+            if(loading == null || !loading.matches(query, page)){
+                return null;
+            }
+            inFlight = loading;
+            inFlight.taken = true; //Ya no se guarda en ready, es para quien llama
+            if(!inFlight.started){
+                return null;
+            }
+        }
+        try{
+            if(!inFlight.done.await(BuildConfig.HTTP_CONNECT_TIMEOUT_SECONDS
+                    + BuildConfig.HTTP_READ_TIMEOUT_SECONDS, TimeUnit.SECONDS)){
+                return null;
+            }
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        return inFlight.response; //null si ha fallado
+    }
+
+    @WorkerThread
+    private void fetch(String query){
+        RepoSearchResult current = db.repoDao().findSearchResult(query);
+        if(current == null || current.next == null){
+            return; //No hay mas paginas
+        }
+        PrefetchedPage page = new PrefetchedPage(query, current.next);
+        synchronized (this){
+            PrefetchedPage done = ready;
+            if((done != null && done.matches(query, page.page))
+                    || (loading != null && loading.matches(query, page.page))){
+                return; //Ya la tenemos o ya se esta pidiendo
+            }
+            loading = page;
+        }
+        //Si queda poco rate limit se espacia, o no se pide: es solo una prediccion
+        rateBudget.runNonUrgent(RateBudget.SEARCH, appExecutors.networkIO(),
+                () -> request(page), () -> finish(page));
+    }
+
+    @WorkerThread
+    private void request(PrefetchedPage page){
+        try{
+            synchronized (this){
+                if(page.taken){
+                    return; //Ya la esta pidiendo FetchNextSearchPageTask
+                }
+                page.started = true;
+            }
+            Response<RepoSearchResponse> response = githubService.searchRepos(page.query, page.page).execute();
+            ApiResponse<RepoSearchResponse> apiResponse = new ApiResponse<>(response);
+            if(apiResponse.isSuccessful()){
+                page.response = apiResponse;
+            }
+        } catch (Exception ignored){
+            //Es solo una prediccion, si falla FetchNextSearchPageTask lo pedira de nuevo
+        } finally {
+            finish(page);
+        }
+    }
+
+    private void finish(PrefetchedPage page){
+        synchronized (this){
+            if(loading == page){
+                loading = null;
+            }
+            if(page.response != null && !page.taken && Objects.equals(currentQuery, page.query)){
+                ready = page;
+            }
+        }
+        page.done.countDown();
+    }
+
+    private static class PrefetchedPage {
+        final String query;
+        final int page;
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile ApiResponse<RepoSearchResponse> response;
+        boolean started; //Protegido por SearchPrefetcher.this
+        boolean taken; //Protegido por SearchPrefetcher.this
+
+        PrefetchedPage(String query, int page) {
+            this.query = query;
+            this.page = page;
+        }
+
+        boolean matches(String query, int page){
+            return this.page == page && this.query.equals(query);
+        }
+    }
+}
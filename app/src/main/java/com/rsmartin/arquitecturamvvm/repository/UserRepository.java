@@ -1,12 +1,19 @@
 package com.rsmartin.arquitecturamvvm.repository;
 
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Transformations;
 
 import com.rsmartin.arquitecturamvvm.AppExecutors;
 import com.rsmartin.arquitecturamvvm.api.ApiResponse;
 import com.rsmartin.arquitecturamvvm.api.WebServiceApi;
+import com.rsmartin.arquitecturamvvm.db.HttpValidatorDao;
 import com.rsmartin.arquitecturamvvm.db.UserDao;
 import com.rsmartin.arquitecturamvvm.model.User;
+import com.rsmartin.arquitecturamvvm.utils.FreshnessPolicy;
+import com.rsmartin.arquitecturamvvm.utils.InstantLiveData;
+import com.rsmartin.arquitecturamvvm.utils.MetricsSink;
+
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -15,39 +22,93 @@ import javax.inject.Singleton;
 public class UserRepository {
 
     private final UserDao userDao;
+    private final HttpValidatorDao validatorDao;
     private final WebServiceApi gitHubService;
     private final AppExecutors appExecutors;
+    private final InFlightResources inFlight;
+    private final MemoryCache memoryCache;
+    private final WriteBehindQueue writeBehind;
+    private final MetricsSink metrics;
+
+    private final FreshnessPolicy userFreshness = new FreshnessPolicy(1, TimeUnit.HOURS);
 
     @Inject
-    UserRepository(UserDao userDao, WebServiceApi gitHubService, AppExecutors appExecutors) {
+    UserRepository(UserDao userDao, HttpValidatorDao validatorDao, WebServiceApi gitHubService,
+                   AppExecutors appExecutors, InFlightResources inFlight, MemoryCache memoryCache,
+                   WriteBehindQueue writeBehind, MetricsSink metrics) {
         this.userDao = userDao;
+        this.validatorDao = validatorDao;
         this.gitHubService = gitHubService;
         this.appExecutors = appExecutors;
+        this.inFlight = inFlight;
+        this.memoryCache = memoryCache;
+        this.writeBehind = writeBehind;
+        this.metrics = metrics;
     }
 
     public LiveData<Resource<User>> loadUser(String login){
-        return new NetworkBoundResource<User, User>(appExecutors){
+        return inFlight.share("user/" + login, () -> new NetworkBoundResource<User, User>(appExecutors, "loadUser", metrics){
 
             @Override
             protected boolean shouldFetchData(User data) {
                 return data == null; // Si no hay datos en Room es true y lanzamos el Servicio
             }
 
+            @Override
+            protected boolean shouldRevalidate(User data) {
+                return userFreshness.isStale(data.getFetchedAt()); // Lo enseñamos y refrescamos por detras
+            }
+
             @Override
             protected LiveData<User> loadFromDb() {
-                return userDao.findByLogin(login); // Se implementa aqui, cargamos un usario
+                LiveData<User> fromDb = Transformations.map(userDao.findByLogin(login), user -> { // Se implementa aqui, cargamos un usario
+                    if(user != null){
+                        memoryCache.putUser(user);
+                    }
+                    return user;
+                });
+                User cached = memoryCache.getUser(login);
+                // Si lo teniamos en memoria sale ya, y despues seguimos a Room
+                return cached != null ? InstantLiveData.create(cached, fromDb) : fromDb;
             }
 
             @Override
             protected void saveCallResult(User item) {
+                item.setFetchedAt(userFreshness.now());
                 userDao.insert(item); // Guardamos un Usuario en Room, que esta bajado del Servicio
             }
 
+            @Override
+            protected void onSaveCommitted(User item) {
+                memoryCache.putUser(item); // Solo cuando ya esta en Room, el lote se puede deshacer
+            }
+
+            @Override
+            protected User savedResult(User item) {
+                return item; //Es lo mismo que daria findByLogin, sin esperar a Room
+            }
+
+            @Override
+            protected WriteBehindQueue writeBehind() {
+                return writeBehind;
+            }
+
+            @Override
+            protected HttpValidatorDao validators() {
+                return validatorDao;
+            }
+
+            @Override
+            protected void onNotModified() {
+                userDao.touch(login, userFreshness.now());
+                memoryCache.invalidateUser(login); // La copia en memoria tiene el fetchedAt antiguo
+            }
+
             @Override
             protected LiveData<ApiResponse<User>> createCall() {
                 return gitHubService.getUser(login); // Es la peticion de la api
             }
-        }.asLiveData(); //Devuevelo como LiveData para poder observarlo
+        }.asLiveData()); //Devuevelo como LiveData para poder observarlo
     }
 
 }
@@ -0,0 +1,152 @@
+package com.rsmartin.arquitecturamvvm.repository;
+
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.WorkerThread;
+
+import com.rsmartin.arquitecturamvvm.AppExecutors;
+import com.rsmartin.arquitecturamvvm.db.GitHubDb;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Agrupa las escrituras de saveCallResult que llegan casi a la vez en una sola transaccion
+ * de Room, en vez de una transaccion (y un fsync) por cada NetworkBoundResource.
+ *
+ * Una escritura espera como mucho windowMillis a que lleguen otras; si se juntan maxBatch
+ * se escriben en el momento. Todo se ejecuta en el hilo de diskIO y al terminar se avisa
+ * a cada NetworkBoundResource en el Hilo principal de si su escritura ha quedado guardada.
+ *
+ * Dentro de write solo debe haber escrituras en Room: si el lote falla se deshace y cada write
+ * se vuelve a ejecutar por separado. Lo que no se puede deshacer (memoria, lanzar otras
+ * descargas) va en afterCommit, que solo se ejecuta si la escritura ha quedado guardada.
+ */
+
+@Singleton
+public class WriteBehindQueue {
+
+    private static final String TAG = "WriteBehindQueue";
+
+    private final GitHubDb db;
+    private final AppExecutors appExecutors;
+    private final long windowMillis;
+    private final int maxBatch;
+
+    private final List<PendingWrite> pending = new ArrayList<>();
+    private boolean flushScheduled;
+
+    @Inject
+    public WriteBehindQueue(GitHubDb db, AppExecutors appExecutors) {
+        this(db, appExecutors, 50, 16);
+    }
+
+    public WriteBehindQueue(GitHubDb db, AppExecutors appExecutors, long windowMillis, int maxBatch) {
+        this.db = db;
+        this.appExecutors = appExecutors;
+        this.windowMillis = windowMillis;
+        this.maxBatch = maxBatch;
+    }
+
+    /**
+     * @param write se ejecuta en diskIO dentro de la transaccion del lote
+     * @param afterCommit se ejecuta en diskIO, fuera de la transaccion, si write ha quedado guardado. Puede ser null
+     * @param onDone se ejecuta en el Hilo principal al terminar, con el error si no se ha podido guardar
+     */
+    public void enqueue(Runnable write, Runnable afterCommit, OnDone onDone){
+        synchronized (pending){
+            pending.add(new PendingWrite(write, afterCommit, onDone));
+            if(pending.size() >= maxBatch){ //Lote lleno, no esperamos a la ventana
+                appExecutors.diskIO().execute(this::flush);
+            } else if(!flushScheduled){
+                flushScheduled = true;
+                appExecutors.scheduler().schedule(() -> appExecutors.diskIO().execute(this::flush),
+                        windowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    @WorkerThread
+    private void flush(){
+        List<PendingWrite> batch;
+        synchronized (pending){
+            int size = Math.min(maxBatch, pending.size());
+            batch = new ArrayList<>(pending.subList(0, size));
+            pending.subList(0, size).clear();
+            if(pending.isEmpty()){
+                flushScheduled = false;
+            } else {
+                appExecutors.diskIO().execute(this::flush);
+            }
+        }
+        if(batch.isEmpty()){
+            return;
+        }
+
+        if(writeInTransaction(batch) != null){
+            // Una escritura ha fallado y se ha deshecho todo el lote, las repetimos por separado
+            // para que una mala no se lleve por delante a las demas.
+            for(PendingWrite write : batch){
+                write.error = writeInTransaction(Collections.singletonList(write));
+            }
+        }
+
+        for(PendingWrite write : batch){
+            if(write.error == null && write.afterCommit != null){
+                try{
+                    write.afterCommit.run();
+                } catch (RuntimeException e){
+                    Log.e(TAG, "Error after commit", e); //Los datos ya estan guardados
+                }
+            }
+            Throwable error = write.error;
+            appExecutors.mainThread().execute(() -> write.onDone.onDone(error));
+        }
+    }
+
+    /**
+     * @return null si se ha guardado, si no el error (y la transaccion se ha deshecho)
+     */
+    private RuntimeException writeInTransaction(List<PendingWrite> batch){
+        db.beginTransaction();
+        try{
+            for(PendingWrite write : batch){
+                write.write.run();
+            }
+            db.setTransactionSuccessful();
+            return null;
+        } catch (RuntimeException e){
+            Log.e(TAG, "Error writing batch of " + batch.size(), e);
+            return e;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    public interface OnDone {
+        /**
+         * @param error null si la escritura esta en Room
+         */
+        @MainThread
+        void onDone(Throwable error);
+    }
+
+    private static class PendingWrite {
+        final Runnable write;
+        final Runnable afterCommit;
+        final OnDone onDone;
+        RuntimeException error; //Solo se toca en diskIO
+
+        PendingWrite(Runnable write, Runnable afterCommit, OnDone onDone) {
+            this.write = write;
+            this.afterCommit = afterCommit;
+            this.onDone = onDone;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.rsmartin.arquitecturamvvm.ui.common;
+
+import android.view.ViewGroup;
+
+import androidx.databinding.ViewDataBinding;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+
+import com.rsmartin.arquitecturamvvm.AppExecutors;
+
+/**
+ * Adapter de listas con data binding.
+ *
+ * Cada emision de Room es una lista nueva; con submitList el diff se calcula fuera del Hilo
+ * principal (en AppExecutors.diskRead(), que es el pool de lecturas) y al RecyclerView solo le
+ * llegan las filas que han cambiado. Los ids son estables, asi que las animaciones y el scroll
+ * no saltan aunque cambie la lista entera.
+ *
+ * @param <T> tipo de la fila
+ * @param <V> binding del layout de la fila
+ */
+
+public abstract class DataBoundListAdapter<T, V extends ViewDataBinding>
+        extends ListAdapter<T, DataBoundViewHolder<V>> {
+
+    protected DataBoundListAdapter(AppExecutors appExecutors, DiffUtil.ItemCallback<T> diffCallback) {
+        super(new AsyncDifferConfig.Builder<>(diffCallback)
+                .setBackgroundThreadExecutor(appExecutors.diskRead())
+                .build());
+        setHasStableIds(true);
+    }
+
+    @Override
+    public DataBoundViewHolder<V> onCreateViewHolder(ViewGroup parent, int viewType) {
+        return new DataBoundViewHolder<>(createBinding(parent));
+    }
+
+    @Override
+    public void onBindViewHolder(DataBoundViewHolder<V> holder, int position) {
+        bind(holder.binding, getItem(position));
+        holder.binding.executePendingBindings();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return stableId(getItem(position));
+    }
+
+    protected abstract V createBinding(ViewGroup parent);
+
+    protected abstract void bind(V binding, T item);
+
+    protected abstract long stableId(T item);
+
+    /**
+     * Hash de 64 bits (FNV-1a) para claves de texto como el login: con 32 bits (hashCode)
+     * las colisiones en listas grandes son mas probables.
+     */
+    protected static long stableId(String key){
+        long hash = 0xcbf29ce484222325L;
+        for(int i = 0; i < key.length(); i++){
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
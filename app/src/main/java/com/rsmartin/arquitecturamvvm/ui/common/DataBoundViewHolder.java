@@ -0,0 +1,18 @@
+package com.rsmartin.arquitecturamvvm.ui.common;
+
+import androidx.databinding.ViewDataBinding;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * ViewHolder que solo guarda el binding de la fila.
+ */
+
+public class DataBoundViewHolder<V extends ViewDataBinding> extends RecyclerView.ViewHolder {
+
+    public final V binding;
+
+    DataBoundViewHolder(V binding) {
+        super(binding.getRoot());
+        this.binding = binding;
+    }
+}
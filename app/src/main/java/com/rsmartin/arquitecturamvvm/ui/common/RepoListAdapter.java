@@ -0,0 +1,81 @@
+package com.rsmartin.arquitecturamvvm.ui.common;
+
+import android.view.LayoutInflater;
+import android.view.ViewGroup;
+
+import androidx.databinding.DataBindingComponent;
+import androidx.databinding.DataBindingUtil;
+import androidx.recyclerview.widget.DiffUtil;
+
+import com.rsmartin.arquitecturamvvm.AppExecutors;
+import com.rsmartin.arquitecturamvvm.R;
+import com.rsmartin.arquitecturamvvm.databinding.RepoItemBinding;
+import com.rsmartin.arquitecturamvvm.model.Repo;
+
+import java.util.Objects;
+
+/**
+ * Lista de repos (busqueda y repos de un usuario). El id estable es Repo.id.
+ */
+
+public class RepoListAdapter extends DataBoundListAdapter<Repo, RepoItemBinding> {
+
+    private static final DiffUtil.ItemCallback<Repo> DIFF = new DiffUtil.ItemCallback<Repo>() {
+        @Override
+        public boolean areItemsTheSame(Repo oldItem, Repo newItem) {
+            if(oldItem.id != Repo.UNKNOWN_ID || newItem.id != Repo.UNKNOWN_ID){
+                return oldItem.id == newItem.id;
+            }
+            return Objects.equals(oldItem.owner.login, newItem.owner.login) //Repo sin id (placeholder)
+                    && Objects.equals(oldItem.name, newItem.name);
+        }
+
+        @Override
+        public boolean areContentsTheSame(Repo oldItem, Repo newItem) {
+            return oldItem.equals(newItem); //No cuenta fetchedAt/lastAccessed: tocarlos no repinta la fila
+        }
+    };
+
+    private final DataBindingComponent dataBindingComponent;
+    private final boolean showFullName;
+    private final RepoClickCallback repoClickCallback;
+
+    public RepoListAdapter(DataBindingComponent dataBindingComponent, AppExecutors appExecutors,
+                           boolean showFullName, RepoClickCallback repoClickCallback) {
+        super(appExecutors, DIFF);
+        this.dataBindingComponent = dataBindingComponent;
+        this.showFullName = showFullName;
+        this.repoClickCallback = repoClickCallback;
+    }
+
+    @Override
+    protected RepoItemBinding createBinding(ViewGroup parent) {
+        RepoItemBinding binding = DataBindingUtil.inflate(LayoutInflater.from(parent.getContext()),
+                R.layout.repo_item, parent, false, dataBindingComponent);
+        binding.getRoot().setOnClickListener(v -> {
+            Repo repo = binding.getRepo();
+            if(repo != null && repoClickCallback != null){
+                repoClickCallback.onClick(repo);
+            }
+        });
+        return binding;
+    }
+
+    @Override
+    protected void bind(RepoItemBinding binding, Repo item) {
+        binding.setShowFullName(showFullName);
+        binding.setRepo(item);
+    }
+
+    @Override
+    protected long stableId(Repo item) {
+        if(item.id != Repo.UNKNOWN_ID){
+            return item.id;
+        }
+        return stableId(item.fullName != null ? item.fullName : item.owner.login + "/" + item.name);
+    }
+
+    public interface RepoClickCallback {
+        void onClick(Repo repo);
+    }
+}
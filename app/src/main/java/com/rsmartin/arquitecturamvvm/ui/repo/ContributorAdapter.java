@@ -0,0 +1,83 @@
+package com.rsmartin.arquitecturamvvm.ui.repo;
+
+import android.view.LayoutInflater;
+import android.view.ViewGroup;
+
+import androidx.databinding.DataBindingComponent;
+import androidx.databinding.DataBindingUtil;
+import androidx.recyclerview.widget.DiffUtil;
+
+import com.rsmartin.arquitecturamvvm.AppExecutors;
+import com.rsmartin.arquitecturamvvm.R;
+import com.rsmartin.arquitecturamvvm.binding.FragmentBindingAdapters;
+import com.rsmartin.arquitecturamvvm.databinding.ContributorItemBinding;
+import com.rsmartin.arquitecturamvvm.model.Contributor;
+import com.rsmartin.arquitecturamvvm.ui.common.DataBoundListAdapter;
+
+import java.util.Objects;
+
+/**
+ * Contribuidores de un repo. El id estable sale del login (en la lista de un repo es unico).
+ * Tambien le da las urls al precargador de avatares de FragmentBindingAdapters.
+ */
+
+public class ContributorAdapter extends DataBoundListAdapter<Contributor, ContributorItemBinding>
+        implements FragmentBindingAdapters.AvatarSource {
+
+    private static final DiffUtil.ItemCallback<Contributor> DIFF = new DiffUtil.ItemCallback<Contributor>() {
+        @Override
+        public boolean areItemsTheSame(Contributor oldItem, Contributor newItem) {
+            return Objects.equals(oldItem.getLogin(), newItem.getLogin());
+        }
+
+        @Override
+        public boolean areContentsTheSame(Contributor oldItem, Contributor newItem) {
+            return oldItem.equals(newItem);
+        }
+    };
+
+    private final DataBindingComponent dataBindingComponent;
+    private final ContributorClickCallback callback;
+
+    public ContributorAdapter(DataBindingComponent dataBindingComponent, AppExecutors appExecutors,
+                              ContributorClickCallback callback) {
+        super(appExecutors, DIFF);
+        this.dataBindingComponent = dataBindingComponent;
+        this.callback = callback;
+    }
+
+    @Override
+    protected ContributorItemBinding createBinding(ViewGroup parent) {
+        ContributorItemBinding binding = DataBindingUtil.inflate(LayoutInflater.from(parent.getContext()),
+                R.layout.contributor_item, parent, false, dataBindingComponent);
+        binding.getRoot().setOnClickListener(v -> {
+            Contributor contributor = binding.getContributor();
+            if(contributor != null && callback != null){
+                callback.onClick(contributor);
+            }
+        });
+        return binding;
+    }
+
+    @Override
+    protected void bind(ContributorItemBinding binding, Contributor item) {
+        binding.setContributor(item);
+    }
+
+    @Override
+    protected long stableId(Contributor item) {
+        return stableId(item.getLogin());
+    }
+
+    @Override
+    public String avatarUrl(int position) {
+        if(position < 0 || position >= getItemCount()){
+            return null;
+        }
+        return getItem(position).getAvatarUrl();
+    }
+
+    public interface ContributorClickCallback {
+        void onClick(Contributor contributor);
+    }
+}
@@ -9,6 +9,7 @@ import androidx.lifecycle.ViewModel;
 import com.rsmartin.arquitecturamvvm.utils.AbsentLiveData;
 import com.rsmartin.arquitecturamvvm.model.Repo;
 import com.rsmartin.arquitecturamvvm.model.User;
+import com.rsmartin.arquitecturamvvm.repository.PaginatedFetcher;
 import com.rsmartin.arquitecturamvvm.repository.RepoRepository;
 import com.rsmartin.arquitecturamvvm.repository.Resource;
 import com.rsmartin.arquitecturamvvm.repository.UserRepository;
@@ -39,7 +40,7 @@ public class UserViewModel extends ViewModel {
             if(login == null){
                 return AbsentLiveData.create();
             } else {
-                return repoRepository.loadRepos(login);
+                return repoRepository.loadRepos(login, PaginatedFetcher.Mode.ALL_AT_ONCE); //La pantalla enseña todos sus repos
             }
         });
     }
@@ -0,0 +1,45 @@
+package com.rsmartin.arquitecturamvvm.utils;
+
+import androidx.annotation.MainThread;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
+
+import java.util.Objects;
+
+/**
+ * Deja pasar un valor de source solo si es distinto del anterior.
+ *
+ * Room vuelve a emitir cada vez que se escribe en la tabla aunque las filas sean las mismas
+ * (un touch, una pagina que ya teniamos...).
+ *
+ * Coste por emision: una pasada sobre el valor para el hash (solo aqui, Resource no lo vuelve a
+ * calcular). Si no coincide con el del anterior ya sabemos que ha cambiado; si coincide, una
+ * segunda pasada con equals para confirmar que no es una colision.
+ */
+
+public class DistinctLiveData<T> extends MediatorLiveData<T> {
+
+    private boolean hasValue;
+    private int lastHash;
+
+    @MainThread
+    private DistinctLiveData(LiveData<T> source) {
+        addSource(source, value -> {
+            int hash = Objects.hashCode(value);
+            if(hasValue && hash == lastHash && Objects.equals(getValue(), value)){
+                return; //Lo mismo que ya tienen los observadores
+            }
+            hasValue = true;
+            lastHash = hash;
+            setValue(value);
+        });
+    }
+
+    @MainThread
+    public static <T> LiveData<T> create(LiveData<T> source){
+        if(source instanceof DistinctLiveData){
+            return source;
+        }
+        return new DistinctLiveData<>(source);
+    }
+}
@@ -0,0 +1,30 @@
+package com.rsmartin.arquitecturamvvm.utils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decide si un dato guardado en Room esta caducado a partir de cuando lo bajamos (fetchedAt).
+ *
+ * La marca de tiempo se guarda en la propia fila de Room (no en memoria), asi que
+ * sobrevive a que se cierre la app y al arrancar no volvemos a pedir todo.
+ */
+public class FreshnessPolicy {
+
+    private final long ttl;
+
+    public FreshnessPolicy(int ttl, TimeUnit timeUnit){
+        this.ttl = timeUnit.toMillis(ttl);
+    }
+
+    public long now(){
+        return System.currentTimeMillis(); //Hora de reloj, no uptime, para que valga entre procesos
+    }
+
+    public boolean isStale(long fetchedAt){
+        if(fetchedAt <= 0){ //Nunca lo hemos bajado (o son filas de antes de guardar la fecha)
+            return true;
+        }
+        long age = now() - fetchedAt;
+        return age < 0 || age > ttl; //Si el reloj ha ido hacia atras no nos fiamos
+    }
+}
@@ -0,0 +1,102 @@
+package com.rsmartin.arquitecturamvvm.utils;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * MetricsSink en memoria: un LatencyRecorder (ultimas muestras) por tag y fase, y contadores
+ * de resultados y bytes. dump() lo devuelve como texto para logcat o para un test.
+ */
+@Singleton
+public class InMemoryMetrics implements MetricsSink {
+
+    private final int samplesPerPhase;
+    private final ConcurrentHashMap<String, LatencyRecorder> phases = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    @Inject
+    public InMemoryMetrics() {
+        this(512);
+    }
+
+    public InMemoryMetrics(int samplesPerPhase) {
+        this.samplesPerPhase = samplesPerPhase;
+    }
+
+    @Override
+    public void recordPhase(String tag, Phase phase, long nanos) {
+        String key = tag + "." + phase;
+        LatencyRecorder recorder = phases.get(key);
+        if(recorder == null){
+            LatencyRecorder created = new LatencyRecorder(samplesPerPhase);
+            recorder = phases.putIfAbsent(key, created);
+            if(recorder == null){
+                recorder = created;
+            }
+        }
+        recorder.record(nanos);
+    }
+
+    @Override
+    public void recordOutcome(String tag, Outcome outcome) {
+        counter(tag + "." + outcome).incrementAndGet();
+    }
+
+    @Override
+    public void recordBytes(String tag, long bytes) {
+        if(bytes >= 0){
+            counter(tag + ".bytes").addAndGet(bytes);
+        }
+    }
+
+    private AtomicLong counter(String key){
+        AtomicLong counter = counters.get(key);
+        if(counter == null){
+            AtomicLong created = new AtomicLong();
+            counter = counters.putIfAbsent(key, created);
+            if(counter == null){
+                counter = created;
+            }
+        }
+        return counter;
+    }
+
+    public LatencyRecorder.Percentiles percentiles(String tag, Phase phase){
+        LatencyRecorder recorder = phases.get(tag + "." + phase);
+        return recorder == null ? new LatencyRecorder(1).percentiles() : recorder.percentiles();
+    }
+
+    public long count(String tag, Outcome outcome){
+        AtomicLong counter = counters.get(tag + "." + outcome);
+        return counter == null ? 0 : counter.get();
+    }
+
+    public long bytes(String tag){
+        AtomicLong counter = counters.get(tag + ".bytes");
+        return counter == null ? 0 : counter.get();
+    }
+
+    /**
+     * Una linea por tag.fase con sus percentiles y otra por contador, ordenadas por nombre.
+     */
+    public String dump(){
+        StringBuilder out = new StringBuilder();
+        for(Map.Entry<String, LatencyRecorder> entry : new TreeMap<>(phases).entrySet()){
+            out.append(entry.getKey()).append(' ').append(entry.getValue().percentiles()).append('\n');
+        }
+        for(Map.Entry<String, AtomicLong> entry : new TreeMap<>(counters).entrySet()){
+            out.append(entry.getKey()).append(' ').append(entry.getValue().get()).append('\n');
+        }
+        return out.toString();
+    }
+
+    public void reset(){
+        phases.clear();
+        counters.clear();
+    }
+}
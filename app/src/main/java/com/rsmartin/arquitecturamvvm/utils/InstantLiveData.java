@@ -0,0 +1,28 @@
+package com.rsmartin.arquitecturamvvm.utils;
+
+import androidx.annotation.MainThread;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
+
+/**
+ * LiveData que ya tiene el valor desde el principio, para datos que tenemos en memoria
+ * y no hace falta esperar a Room.
+ *
+ * Despues sigue a source (la query de Room): asi la pantalla se entera de lo que se guarde
+ * mas tarde (otras paginas, un refresco...). La primera emision de Room normalmente es igual
+ * a la de memoria y NetworkBoundResource la descarta.
+ */
+
+public class InstantLiveData<T> extends MediatorLiveData<T> {
+
+    @MainThread
+    private InstantLiveData(T value, LiveData<T> source) {
+        setValue(value);
+        addSource(source, this::setValue);
+    }
+
+    @MainThread
+    public static <T> LiveData<T> create(T value, LiveData<T> source){
+        return new InstantLiveData<>(value, source);
+    }
+}
@@ -0,0 +1,79 @@
+package com.rsmartin.arquitecturamvvm.utils;
+
+import java.util.Arrays;
+
+/**
+ * Guarda las ultimas muestras de tiempo (en nanos) y calcula percentiles sobre ellas.
+ * Es un buffer circular de tamaño fijo, asi que la memoria no crece por muchas muestras que haya.
+ */
+public class LatencyRecorder {
+
+    private final long[] samples;
+    private int next;
+    private int size;
+    private long count;
+
+    public LatencyRecorder(int capacity){
+        this.samples = new long[capacity];
+    }
+
+    public synchronized void record(long nanos){
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        if(size < samples.length){
+            size++;
+        }
+        count++;
+    }
+
+    public synchronized void clear(){
+        next = 0;
+        size = 0;
+        count = 0;
+    }
+
+    public Percentiles percentiles(){
+        long[] copy;
+        long total;
+        synchronized (this){
+            copy = Arrays.copyOf(samples, size);
+            total = count;
+        }
+        Arrays.sort(copy);
+        return new Percentiles(total, at(copy, 0.5), at(copy, 0.9), at(copy, 0.99),
+                copy.length == 0 ? 0 : copy[copy.length - 1]);
+    }
+
+    private static long at(long[] sorted, double percentile){
+        if(sorted.length == 0){
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+
+    /**
+     * Percentiles de las ultimas muestras, en nanos. count son todas las muestras desde el principio.
+     */
+    public static class Percentiles {
+        public final long count;
+        public final long p50;
+        public final long p90;
+        public final long p99;
+        public final long max;
+
+        public Percentiles(long count, long p50, long p90, long p99, long max) {
+            this.count = count;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+            this.max = max;
+        }
+
+        @Override
+        public String toString() {
+            return "n=" + count + " p50=" + p50 / 1000 + "us p90=" + p90 / 1000
+                    + "us p99=" + p99 / 1000 + "us max=" + max / 1000 + "us";
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.rsmartin.arquitecturamvvm.utils;
+
+import androidx.lifecycle.LiveData;
+
+import com.rsmartin.arquitecturamvvm.AppExecutors;
+import com.rsmartin.arquitecturamvvm.api.ApiResponse;
+
+import java.lang.reflect.Type;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+
+/**
+ * Convierte la Call de Retrofit en un LiveData<ApiResponse<R>>.
+ *
+ * La peticion se lanza cuando el LiveData pasa a estar activo, una sola vez, y se ejecuta en
+ * AppExecutors.networkIO() con call.execute() en vez de con enqueue en los hilos de OkHttp:
+ * asi todo lo que va a red sale del mismo pool y se ve en sus metricas.
+ */
+public class LiveDataCallAdapter<R> implements CallAdapter<R, LiveData<ApiResponse<R>>> {
+
+    private final Type responseType;
+    private final AppExecutors appExecutors;
+
+    public LiveDataCallAdapter(Type responseType, AppExecutors appExecutors) {
+        this.responseType = responseType;
+        this.appExecutors = appExecutors;
+    }
+
+    @Override
+    public Type responseType() {
+        return responseType;
+    }
+
+    @Override
+    public LiveData<ApiResponse<R>> adapt(Call<R> call) {
+        return new LiveData<ApiResponse<R>>() {
+            private final AtomicBoolean started = new AtomicBoolean(false);
+
+            @Override
+            protected void onActive() {
+                super.onActive();
+                if(started.compareAndSet(false, true)){
+                    appExecutors.networkIO().execute(() -> {
+                        ApiResponse<R> response;
+                        try{
+                            response = new ApiResponse<>(call.execute());
+                        } catch (Throwable throwable){
+                            response = new ApiResponse<>(throwable);
+                        }
+                        postValue(response);
+                    });
+                }
+            }
+        };
+    }
+}
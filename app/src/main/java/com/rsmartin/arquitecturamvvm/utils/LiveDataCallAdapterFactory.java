@@ -0,0 +1,41 @@
+package com.rsmartin.arquitecturamvvm.utils;
+
+import androidx.lifecycle.LiveData;
+
+import com.rsmartin.arquitecturamvvm.AppExecutors;
+import com.rsmartin.arquitecturamvvm.api.ApiResponse;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+
+import retrofit2.CallAdapter;
+import retrofit2.Retrofit;
+
+/**
+ * Permite que WebServiceApi devuelva LiveData<ApiResponse<T>>.
+ */
+public class LiveDataCallAdapterFactory extends CallAdapter.Factory {
+
+    private final AppExecutors appExecutors;
+
+    public LiveDataCallAdapterFactory(AppExecutors appExecutors) {
+        this.appExecutors = appExecutors;
+    }
+
+    @Override
+    public CallAdapter<?, ?> get(Type returnType, Annotation[] annotations, Retrofit retrofit) {
+        if(getRawType(returnType) != LiveData.class){
+            return null;
+        }
+        Type observableType = getParameterUpperBound(0, (ParameterizedType) returnType);
+        if(getRawType(observableType) != ApiResponse.class){
+            throw new IllegalArgumentException("type must be a ApiResponse");
+        }
+        if(!(observableType instanceof ParameterizedType)){
+            throw new IllegalArgumentException("ApiResponse must be parameterized");
+        }
+        Type bodyType = getParameterUpperBound(0, (ParameterizedType) observableType);
+        return new LiveDataCallAdapter<>(bodyType, appExecutors);
+    }
+}
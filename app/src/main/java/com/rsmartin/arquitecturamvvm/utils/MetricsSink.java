@@ -0,0 +1,48 @@
+package com.rsmartin.arquitecturamvvm.utils;
+
+/**
+ * Donde apuntan los NetworkBoundResource cuanto tarda cada fase y como ha acabado.
+ * tag es el tipo de recurso ("loadRepos", "search"...).
+ *
+ * Se llama desde el Hilo principal y desde los hilos de disco, asi que tiene que ser thread-safe.
+ */
+public interface MetricsSink {
+
+    enum Phase {
+        LOAD_FROM_DB,       //Desde que se crea el recurso hasta la primera emision de loadFromDb
+        NETWORK,            //createCall hasta la respuesta (con la conversion de Gson si no es streaming)
+        PROCESS_RESPONSE,
+        SAVE,               //saveCallResult
+        RELOAD,             //loadFromDb despues de guardar, hasta su primera emision
+        TOTAL               //Desde que se crea hasta el primer SUCCESS o ERROR
+    }
+
+    enum Outcome {
+        CACHE_HIT,
+        NETWORK_FETCH,
+        REVALIDATE,
+        NOT_MODIFIED,
+        RATE_LIMITED,
+        ERROR
+    }
+
+    void recordPhase(String tag, Phase phase, long nanos);
+
+    void recordOutcome(String tag, Outcome outcome);
+
+    void recordBytes(String tag, long bytes);
+
+    MetricsSink NONE = new MetricsSink() {
+        @Override
+        public void recordPhase(String tag, Phase phase, long nanos) {
+        }
+
+        @Override
+        public void recordOutcome(String tag, Outcome outcome) {
+        }
+
+        @Override
+        public void recordBytes(String tag, long bytes) {
+        }
+    };
+}
@@ -1,9 +1,11 @@
 package com.rsmartin.arquitecturamvvm.utils;
 
-import android.os.SystemClock;
-import android.util.ArrayMap;
-
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 /**
@@ -12,37 +14,141 @@ import java.util.concurrent.TimeUnit;
  *
  * Dependemos de Key, si ha pasado más tiempo de ese solicitamos los datos de webservice.
  *
+ * Se puede usar desde varios hilos a la vez sin bloquear: no hay synchronized, cada clave
+ * se actualiza con compare-and-set sobre un ConcurrentHashMap. Las claves caducadas se barren
+ * cada cierto tiempo y nunca guardamos mas de maxKeys.
+ *
+ * Para el limite de claves cada escritura se apunta en una cola (order) en el orden en que
+ * ocurre; si nos pasamos se quita la clave de la cabeza, sin recorrer el mapa. Una entrada de
+ * la cola que ya no es la marca actual de su clave (renovada, reset, barrida) se tira al
+ * sacarla, asi que cada escritura cuesta O(1) amortizado.
+ *
  * @param <KEY> clave de tiempo
  */
 public class RateLimiter<KEY> {
-    private ArrayMap<KEY, Long> timestamps = new ArrayMap<>();
+
+    private static final int DEFAULT_MAX_KEYS = 1000;
+
+    private final ConcurrentHashMap<KEY, Stamp> timestamps = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Node<KEY>> order = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger(); //size() de la cola es O(n)
     private final long timeout;
+    private final int maxKeys;
+    private final AtomicLong nextSweep;
 
     public RateLimiter(int timeout, TimeUnit timeUnit){
-        this.timeout = timeUnit.toMillis(timeout);
+        this(timeout, timeUnit, DEFAULT_MAX_KEYS);
+    }
+
+    public RateLimiter(int timeout, TimeUnit timeUnit, int maxKeys){
+        this.timeout = timeUnit.toNanos(timeout);
+        this.maxKeys = maxKeys;
+        this.nextSweep = new AtomicLong(now() + this.timeout);
     }
 
-    public synchronized boolean shouldFetch(KEY key){
-        Long lastFetched = timestamps.get(key); //Guardamos por ultima vez cuando solicitamos datos
+    public boolean shouldFetch(KEY key){
         long now = now();
-        if(lastFetched == null){ //Si nunsca se habia solicitado se guarda
-            timestamps.put(key, now);
-            return true;
-        }
+        sweepIfNeeded(now);
+        while (true){
+            Stamp lastFetched = timestamps.get(key); //Guardamos por ultima vez cuando solicitamos datos
+            if(lastFetched == null){ //Si nunsca se habia solicitado se guarda
+                Stamp stamp = new Stamp(now);
+                if(timestamps.putIfAbsent(key, stamp) == null){
+                    written(key, stamp);
+                    return true;
+                }
+                continue; //Otro hilo la ha metido a la vez, volvemos a mirar
+            }
 
-        if(now - lastFetched > timeout){ //Si hemos sobrepasado el tiempo solicitamos el servicio
-            timestamps.put(key, now);
-            return true;
-        }
+            if(now - lastFetched.time > timeout){ //Si hemos sobrepasado el tiempo solicitamos el servicio
+                Stamp stamp = new Stamp(now);
+                if(timestamps.replace(key, lastFetched, stamp)){
+                    written(key, stamp);
+                    return true;
+                }
+                continue; //Otro hilo ha ganado y es el que va a pedir los datos
+            }
 
-        return false; // si no pasa por los otros return, no neceitamos solicitar al servicio y usamos Room
+            return false; // si no pasa por los otros return, no neceitamos solicitar al servicio y usamos Room
+        }
     }
 
     private long now() {
-        return SystemClock.uptimeMillis();//El tiempo actual
+        return System.nanoTime(); //Monotono como SystemClock.uptimeMillis, y vale fuera de Android
     }
 
-    public synchronized void reset(KEY key){
+    public void reset(KEY key){
         timestamps.remove(key);
     }
+
+    public int size(){
+        return timestamps.size();
+    }
+
+    private void written(KEY key, Stamp stamp){
+        order.offer(new Node<>(key, stamp));
+        queued.incrementAndGet();
+        trimIfNeeded();
+    }
+
+    /**
+     * Saca de la cabeza de order mientras sobren claves, o mientras la cola tenga mas del doble
+     * de entradas que claves caben (casi todas viejas). Las entradas viejas se tiran; una vigente
+     * solo se borra del mapa si sobran claves, si no vuelve al final de la cola.
+     */
+    private void trimIfNeeded(){
+        while (timestamps.size() > maxKeys || queued.get() > 2 * maxKeys){
+            Node<KEY> node = order.poll();
+            if(node == null){
+                return;
+            }
+            queued.decrementAndGet();
+            if(timestamps.get(node.key) != node.stamp){
+                continue; //Ya no es la marca de esa clave
+            }
+            if(timestamps.size() > maxKeys){
+                timestamps.remove(node.key, node.stamp); //Solo si nadie la ha renovado mientras
+            } else {
+                order.offer(node);
+                queued.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Solo barre un hilo cada vez (el que gana el CAS) y como mucho una vez por timeout.
+     */
+    private void sweepIfNeeded(long now){
+        long scheduled = nextSweep.get();
+        if(now - scheduled < 0 || !nextSweep.compareAndSet(scheduled, now + timeout)){
+            return;
+        }
+        for(Map.Entry<KEY, Stamp> entry : timestamps.entrySet()){
+            Stamp lastFetched = entry.getValue();
+            if(now - lastFetched.time > timeout){
+                timestamps.remove(entry.getKey(), lastFetched); //Solo si nadie la ha renovado
+            }
+        }
+    }
+
+    /**
+     * Sin equals: el mapa y la cola comparan por identidad, cada escritura es una marca nueva.
+     */
+    private static final class Stamp {
+        final long time;
+
+        Stamp(long time) {
+            this.time = time;
+        }
+    }
+
+    private static final class Node<KEY> {
+        final KEY key;
+        final Stamp stamp;
+
+        Node(KEY key, Stamp stamp) {
+            this.key = key;
+            this.stamp = stamp;
+        }
+    }
 }
@@ -0,0 +1,77 @@
+package com.rsmartin.arquitecturamvvm.api;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * El header Link de GitHub y las paginas first/prev/next/last que sacamos de el.
+ */
+public class LinkHeadersTest {
+
+    private static final String LINK_HEADER =
+            "<https://api.github.com/user/repos?per_page=100&page=3>; rel=\"next\", "
+            + "<https://api.github.com/user/repos?per_page=100&page=34>; rel=\"last\", "
+            + "<https://api.github.com/user/repos?per_page=100&page=1>; rel=\"first\", "
+            + "<https://api.github.com/user/repos?per_page=100&page=1>; rel=\"prev\"";
+
+    @Test
+    public void parsesEveryRel() {
+        Map<String, String> links = LinkHeaders.parse(LINK_HEADER);
+
+        assertEquals(4, links.size());
+        assertEquals("https://api.github.com/user/repos?per_page=100&page=3", links.get("next"));
+        assertEquals("https://api.github.com/user/repos?per_page=100&page=34", links.get("last"));
+        assertEquals("https://api.github.com/user/repos?per_page=100&page=1", links.get("first"));
+        assertEquals("https://api.github.com/user/repos?per_page=100&page=1", links.get("prev"));
+    }
+
+    @Test
+    public void pagesOfEveryRel() {
+        Map<String, String> links = LinkHeaders.parse(LINK_HEADER);
+
+        assertEquals(Integer.valueOf(1), LinkHeaders.pageOf(links.get("first")));
+        assertEquals(Integer.valueOf(1), LinkHeaders.pageOf(links.get("prev")));
+        assertEquals(Integer.valueOf(3), LinkHeaders.pageOf(links.get("next")));
+        assertEquals(Integer.valueOf(34), LinkHeaders.pageOf(links.get("last")));
+    }
+
+    /**
+     * Antes se parseaba matcher.group() ("page=3") en vez de group(1) ("3"): la excepcion se
+     * tragaba y next salia siempre null, asi que nunca se pedia la segunda pagina.
+     */
+    @Test
+    public void pageIsTheNumberNotTheWholeMatch() {
+        assertEquals(Integer.valueOf(3), LinkHeaders.pageOf("https://api.github.com/search/repositories?q=android&page=3"));
+    }
+
+    @Test
+    public void perPageIsNotThePage() {
+        assertNull(LinkHeaders.pageOf("https://api.github.com/user/repos?per_page=100"));
+        assertEquals(Integer.valueOf(2), LinkHeaders.pageOf("https://api.github.com/user/repos?per_page=100&page=2"));
+    }
+
+    @Test
+    public void firstPageHasNoPrevOrFirst() {
+        Map<String, String> links = LinkHeaders.parse(
+                "<https://api.github.com/user/repos?page=2>; rel=\"next\", "
+                + "<https://api.github.com/user/repos?page=5>; rel=\"last\"");
+
+        assertNull(LinkHeaders.pageOf(links.get("first")));
+        assertNull(LinkHeaders.pageOf(links.get("prev")));
+        assertEquals(Integer.valueOf(2), LinkHeaders.pageOf(links.get("next")));
+        assertEquals(Integer.valueOf(5), LinkHeaders.pageOf(links.get("last")));
+    }
+
+    @Test
+    public void missingOrBrokenHeader() {
+        assertTrue(LinkHeaders.parse(null).isEmpty());
+        assertTrue(LinkHeaders.parse("not a link header").isEmpty());
+        assertNull(LinkHeaders.pageOf(null));
+        assertNull(LinkHeaders.pageOf("https://api.github.com/user/repos?page=99999999999"));
+    }
+}
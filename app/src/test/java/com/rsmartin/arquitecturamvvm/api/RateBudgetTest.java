@@ -0,0 +1,136 @@
+package com.rsmartin.arquitecturamvvm.api;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Headers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * RateBudget.runNonUrgent: se ejecuta ya, se espacia en el scheduler o se salta segun lo que
+ * queda de rate limit. El reloj es fijo (now) y el scheduler un mock, asi que la espera se
+ * comprueba sin dormir y la tarea programada se ejecuta a mano.
+ */
+public class RateBudgetTest {
+
+    private static final long NOW = 1_000_000_000_000L; //Milisegundos, segundos exactos
+    private static final long MAX_PACE = 5000;
+
+    private final ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+    private final RateBudget budget = new RateBudget(scheduler, 0.2f, MAX_PACE) {
+        @Override
+        protected long now() {
+            return NOW;
+        }
+    };
+    private final List<String> ran = new ArrayList<>();
+
+    @Test
+    public void unknownBudgetRunsNow() {
+        run();
+
+        assertEquals(Collections.singletonList("task"), ran);
+        verify(scheduler, never()).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+    }
+
+    @Test
+    public void plentyOfBudgetRunsNow() {
+        remaining(4000, 3600);
+        run();
+
+        assertEquals(Collections.singletonList("task"), ran);
+        verify(scheduler, never()).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+    }
+
+    @Test
+    public void lowBudgetSpreadsWhatIsLeftUntilTheReset() {
+        remaining(100, 100); //100 peticiones en 100 s: una por segundo
+        run();
+
+        assertTrue(ran.isEmpty());
+        runScheduled(1000);
+        assertEquals(Collections.singletonList("task"), ran);
+    }
+
+    @Test
+    public void paceAboveTheMaximumIsSkipped() {
+        remaining(10, 100); //Tocaria esperar 10 s
+        run();
+
+        assertEquals(Collections.singletonList("skipped"), ran);
+        verify(scheduler, never()).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+    }
+
+    @Test
+    public void exhaustedBudgetIsSkipped() {
+        remaining(0, 100);
+        run();
+
+        assertEquals(Collections.singletonList("skipped"), ran);
+        assertEquals(Long.MAX_VALUE, budget.paceMillis(RateBudget.CORE));
+    }
+
+    @Test
+    public void exhaustedWhileWaitingIsSkipped() {
+        remaining(100, 100);
+        run();
+        remaining(0, 100); //Mientras esperaba se ha gastado lo que quedaba
+
+        runScheduled(1000);
+        assertEquals(Collections.singletonList("skipped"), ran);
+    }
+
+    @Test
+    public void retryAfterBlocksUntilItPasses() {
+        budget.update(RateBudget.CORE, 403, Headers.of("Retry-After", "60"));
+        run();
+
+        assertTrue(budget.isExhausted(RateBudget.CORE));
+        assertEquals(Collections.singletonList("skipped"), ran);
+    }
+
+    @Test
+    public void searchHasItsOwnBudget() {
+        budget.update(RateBudget.SEARCH, 200, headers(0, 100));
+        run();
+        budget.runNonUrgent(RateBudget.SEARCH, Runnable::run, () -> ran.add("task"), () -> ran.add("skipped"));
+
+        assertEquals(Arrays.asList("task", "skipped"), ran);
+    }
+
+    private void run(){
+        budget.runNonUrgent(RateBudget.CORE, Runnable::run, () -> ran.add("task"), () -> ran.add("skipped"));
+    }
+
+    private void runScheduled(long expectedDelay){
+        ArgumentCaptor<Runnable> scheduled = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler).schedule(scheduled.capture(), eq(expectedDelay), eq(TimeUnit.MILLISECONDS));
+        scheduled.getValue().run();
+    }
+
+    private void remaining(int remaining, long resetInSeconds){
+        budget.update(RateBudget.CORE, 200, headers(remaining, resetInSeconds));
+    }
+
+    private static Headers headers(int remaining, long resetInSeconds){
+        return Headers.of(
+                "X-RateLimit-Limit", "5000",
+                "X-RateLimit-Remaining", String.valueOf(remaining),
+                "X-RateLimit-Reset", String.valueOf(TimeUnit.MILLISECONDS.toSeconds(NOW) + resetInSeconds));
+    }
+}
@@ -0,0 +1,202 @@
+package com.rsmartin.arquitecturamvvm.repository;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.rsmartin.arquitecturamvvm.AppExecutors;
+import com.rsmartin.arquitecturamvvm.api.ApiResponse;
+import com.rsmartin.arquitecturamvvm.model.Repo;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import retrofit2.Response;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Cuantas veces emite un NetworkBoundResource cuando Room vuelve a dar las mismas filas.
+ */
+public class NetworkBoundResourceTest {
+
+    @Rule
+    public InstantTaskExecutorRule instantExecutor = new InstantTaskExecutorRule();
+
+    private final AppExecutors appExecutors = new AppExecutors(Runnable::run, Runnable::run,
+            Runnable::run, Runnable::run);
+    private final MutableLiveData<List<Repo>> dbData = new MutableLiveData<>();
+    private final List<Resource<List<Repo>>> emitted = new ArrayList<>();
+
+    @Test
+    public void identicalWritesEmitOnce() {
+        cachedResource().observeForever(emitted::add);
+
+        dbData.setValue(repos(1000L, "one", "two"));
+        for(int i = 0; i < 5; i++){
+            dbData.setValue(repos(1000L, "one", "two")); //Listas nuevas con el mismo contenido
+        }
+
+        assertEquals(2, emitted.size()); //loading(null) y success
+        assertEquals(Status.SUCCESS, emitted.get(1).status);
+    }
+
+    @Test
+    public void bookkeepingChangesDoNotEmit() {
+        cachedResource().observeForever(emitted::add);
+
+        dbData.setValue(repos(1000L, "one", "two"));
+        dbData.setValue(repos(2000L, "one", "two")); //Un touch solo cambia fetchedAt
+
+        assertEquals(2, emitted.size());
+    }
+
+    @Test
+    public void changedContentEmits() {
+        cachedResource().observeForever(emitted::add);
+
+        dbData.setValue(repos(1000L, "one", "two"));
+        dbData.setValue(repos(1000L, "one", "two"));
+        dbData.setValue(repos(1000L, "one", "three"));
+
+        assertEquals(3, emitted.size());
+        assertEquals("three", emitted.get(2).data.get(1).name);
+    }
+
+    @Test
+    public void resourceEquality() {
+        assertEquals(Resource.success(repos(1000L, "one")), Resource.success(repos(2000L, "one")));
+        assertEquals(Resource.success(repos(1000L, "one")).hashCode(),
+                Resource.success(repos(2000L, "one")).hashCode());
+        assertFalse(Resource.success(repos(1000L, "one")).equals(Resource.loading(repos(1000L, "one"))));
+        assertFalse(Resource.error("error", null).equals(Resource.error("other", null)));
+    }
+
+    @Test
+    public void savedResultIsEmittedWithoutReloadingFromDb() {
+        MutableLiveData<ApiResponse<List<Repo>>> call = new MutableLiveData<>();
+        int[] loads = {0};
+        new NetworkBoundResource<List<Repo>, List<Repo>>(appExecutors) {
+            @Override
+            protected boolean shouldFetchData(List<Repo> data) {
+                return data == null;
+            }
+
+            @Override
+            protected LiveData<List<Repo>> loadFromDb() {
+                loads[0]++;
+                return dbData;
+            }
+
+            @Override
+            protected void saveCallResult(List<Repo> item) {
+            }
+
+            @Override
+            protected List<Repo> savedResult(List<Repo> item) {
+                return item;
+            }
+
+            @Override
+            protected LiveData<ApiResponse<List<Repo>>> createCall() {
+                return call;
+            }
+        }.asLiveData().observeForever(emitted::add);
+
+        dbData.setValue(null);
+        call.setValue(new ApiResponse<>(Response.success(repos(1000L, "one", "two"))));
+
+        assertEquals(1, loads[0]);
+        assertEquals(Status.SUCCESS, emitted.get(emitted.size() - 1).status);
+        assertEquals(2, emitted.get(emitted.size() - 1).data.size());
+
+        dbData.setValue(repos(2000L, "one", "two")); //Room se pone al dia con lo mismo
+        assertEquals(Status.SUCCESS, emitted.get(emitted.size() - 1).status);
+        assertEquals(2, emitted.size()); //loading(null) y success con lo guardado, nada mas
+    }
+
+    @Test
+    public void revalidationStaysSharedUntilSaved() {
+        MutableLiveData<ApiResponse<List<Repo>>> call = new MutableLiveData<>();
+        InFlightResources inFlight = new InFlightResources();
+        int[] saves = {0};
+        inFlight.share("repos", () -> new NetworkBoundResource<List<Repo>, List<Repo>>(appExecutors) {
+            @Override
+            protected boolean shouldFetchData(List<Repo> data) {
+                return false;
+            }
+
+            @Override
+            protected boolean shouldRevalidate(List<Repo> data) {
+                return true;
+            }
+
+            @Override
+            protected LiveData<List<Repo>> loadFromDb() {
+                return dbData;
+            }
+
+            @Override
+            protected void saveCallResult(List<Repo> item) {
+                saves[0]++;
+            }
+
+            @Override
+            protected LiveData<ApiResponse<List<Repo>>> createCall() {
+                return call;
+            }
+        }).observeForever(emitted::add);
+
+        dbData.setValue(repos(1000L, "one"));
+        assertEquals(Status.SUCCESS, emitted.get(emitted.size() - 1).status);
+        assertTrue(inFlight.isInFlight("repos")); //SUCCESS con lo de Room, la revalidacion sigue
+
+        call.setValue(new ApiResponse<>(Response.success(repos(2000L, "one"))));
+        assertEquals(1, saves[0]);
+        assertFalse(inFlight.isInFlight("repos"));
+    }
+
+    /**
+     * Recurso que siempre sirve lo de Room, sin ir al Servicio.
+     */
+    private LiveData<Resource<List<Repo>>> cachedResource(){
+        return new NetworkBoundResource<List<Repo>, List<Repo>>(appExecutors) {
+            @Override
+            protected boolean shouldFetchData(List<Repo> data) {
+                return false;
+            }
+
+            @Override
+            protected LiveData<List<Repo>> loadFromDb() {
+                return dbData;
+            }
+
+            @Override
+            protected void saveCallResult(List<Repo> item) {
+                throw new AssertionError("No deberia guardar");
+            }
+
+            @Override
+            protected LiveData<ApiResponse<List<Repo>>> createCall() {
+                throw new AssertionError("No deberia ir al Servicio");
+            }
+        }.asLiveData();
+    }
+
+    private static List<Repo> repos(long fetchedAt, String... names){
+        List<Repo> repos = new ArrayList<>();
+        for(int i = 0; i < names.length; i++){
+            Repo repo = new Repo(i, names[i], "owner/" + names[i], "desc " + names[i], i * 10,
+                    new Repo.Owner("owner", "https://api.github.com/users/owner"));
+            repo.fetchedAt = fetchedAt;
+            repo.lastAccessed = fetchedAt;
+            repos.add(repo);
+        }
+        return repos;
+    }
+}
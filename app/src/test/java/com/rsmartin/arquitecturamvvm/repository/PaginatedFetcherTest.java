@@ -0,0 +1,186 @@
+package com.rsmartin.arquitecturamvvm.repository;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+
+import com.rsmartin.arquitecturamvvm.AppExecutors;
+import com.rsmartin.arquitecturamvvm.api.RateBudget;
+import com.rsmartin.arquitecturamvvm.db.GitHubDb;
+import com.rsmartin.arquitecturamvvm.db.PageCursorDao;
+import com.rsmartin.arquitecturamvvm.model.PageCursor;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Response;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * PaginatedFetcher.Job: las paginas llegan en cualquier orden pero se guardan en orden, y un
+ * error para la descarga con el cursor en la ultima pagina guardada.
+ *
+ * networkIO es una cola que vaciamos a mano para decidir en que orden contesta cada pagina;
+ * diskIO y el resto son directos y runInTransaction ejecuta el bloque tal cual.
+ */
+public class PaginatedFetcherTest {
+
+    private static final String KEY = PageCursor.reposKey("owner");
+
+    @Rule
+    public InstantTaskExecutorRule instantExecutor = new InstantTaskExecutorRule();
+
+    private final GitHubDb db = mock(GitHubDb.class);
+    private final PageCursorDao cursorDao = mock(PageCursorDao.class);
+    private final List<Runnable> network = new ArrayList<>();
+    private final AppExecutors appExecutors = new AppExecutors(Runnable::run, Runnable::run,
+            network::add, Runnable::run, mock(ScheduledExecutorService.class));
+    private final RateBudget rateBudget = new RateBudget(mock(ScheduledExecutorService.class), 0.2f, 5000);
+
+    private final List<Integer> requested = new ArrayList<>();
+    private final List<Integer> saved = new ArrayList<>();
+    private final List<Resource<Integer>> progress = new ArrayList<>();
+    private int failingPage = -1;
+
+    @Before
+    public void setUp() {
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        }).when(db).runInTransaction(any(Runnable.class));
+    }
+
+    @Test
+    public void pagesArrivingOutOfOrderAreSavedInOrder() {
+        PaginatedFetcher fetcher = new PaginatedFetcher(db, cursorDao, appExecutors, rateBudget, 3);
+        fetcher.onFirstPageSaved(KEY, 4, source(), PaginatedFetcher.Mode.INCREMENTAL);
+        fetcher.progress(KEY).observeForever(progress::add);
+        assertEquals(3, network.size()); //Paginas 2, 3 y 4 a la vez
+
+        network.remove(2).run(); //Pagina 4
+        network.remove(1).run(); //Pagina 3
+        assertTrue(saved.isEmpty()); //Sin la 2 no se puede guardar nada
+
+        network.remove(0).run(); //Pagina 2
+        assertEquals(Arrays.asList(4, 3, 2), requested);
+        assertEquals(Arrays.asList(2, 3, 4), saved);
+        assertEquals(Arrays.asList(1, 2, 3, 4), cursorPages());
+        assertEquals(Status.SUCCESS, last().status);
+        assertEquals(Integer.valueOf(4), last().data);
+    }
+
+    @Test
+    public void errorStopsAtTheLastSavedPage() {
+        failingPage = 3;
+        PaginatedFetcher fetcher = new PaginatedFetcher(db, cursorDao, appExecutors, rateBudget, 1);
+        fetcher.onFirstPageSaved(KEY, 5, source(), PaginatedFetcher.Mode.INCREMENTAL);
+        fetcher.progress(KEY).observeForever(progress::add);
+        runNetwork();
+
+        assertEquals(Arrays.asList(2, 3), requested); //No se piden la 4 ni la 5
+        assertEquals(Collections.singletonList(2), saved);
+        assertEquals(Arrays.asList(1, 2), cursorPages());
+        assertEquals(Status.ERROR, last().status);
+        assertEquals(Integer.valueOf(2), last().data);
+    }
+
+    @Test
+    public void allAtOnceSavesEveryPageInOneTransaction() {
+        PaginatedFetcher fetcher = new PaginatedFetcher(db, cursorDao, appExecutors, rateBudget, 3);
+        fetcher.onFirstPageSaved(KEY, 4, source(), PaginatedFetcher.Mode.ALL_AT_ONCE);
+
+        network.remove(1).run(); //Pagina 3
+        network.remove(1).run(); //Pagina 4
+        assertTrue(saved.isEmpty());
+        network.remove(0).run(); //Pagina 2
+
+        verify(db, times(1)).runInTransaction(any(Runnable.class));
+        assertEquals(Arrays.asList(2, 3, 4), saved);
+        assertEquals(Arrays.asList(1, 4), cursorPages());
+    }
+
+    @Test
+    public void allAtOnceSavesNothingIfAPageFails() {
+        failingPage = 3;
+        PaginatedFetcher fetcher = new PaginatedFetcher(db, cursorDao, appExecutors, rateBudget, 3);
+        fetcher.onFirstPageSaved(KEY, 4, source(), PaginatedFetcher.Mode.ALL_AT_ONCE);
+        runNetwork();
+
+        verify(db, times(0)).runInTransaction(any(Runnable.class));
+        assertTrue(saved.isEmpty());
+        assertEquals(Collections.singletonList(1), cursorPages());
+    }
+
+    @Test
+    public void firstPageModeFetchesNothing() {
+        PaginatedFetcher fetcher = new PaginatedFetcher(db, cursorDao, appExecutors, rateBudget, 3);
+        fetcher.onFirstPageSaved(KEY, 4, source(), PaginatedFetcher.Mode.FIRST_PAGE);
+
+        assertTrue(network.isEmpty());
+        assertTrue(cursorPages().isEmpty());
+    }
+
+    private void runNetwork(){
+        while (!network.isEmpty()){
+            network.remove(0).run();
+        }
+    }
+
+    private Resource<Integer> last(){
+        return progress.get(progress.size() - 1);
+    }
+
+    private List<Integer> cursorPages(){
+        ArgumentCaptor<PageCursor> cursors = ArgumentCaptor.forClass(PageCursor.class);
+        verify(cursorDao, atLeast(0)).insert(cursors.capture());
+        List<Integer> pages = new ArrayList<>();
+        for(PageCursor cursor : cursors.getAllValues()){
+            pages.add(cursor.lastPage);
+        }
+        return pages;
+    }
+
+    @SuppressWarnings("unchecked")
+    private PaginatedFetcher.PageSource<String> source(){
+        return new PaginatedFetcher.PageSource<String>() {
+            @Override
+            public Call<List<String>> page(int page) {
+                Call<List<String>> call = mock(Call.class);
+                try{
+                    when(call.execute()).thenAnswer(invocation -> {
+                        requested.add(page);
+                        return page == failingPage
+                                ? Response.error(500, ResponseBody.create(null, "boom"))
+                                : Response.success(Collections.singletonList("item" + page));
+                    });
+                } catch (IOException e){
+                    throw new AssertionError(e);
+                }
+                return call;
+            }
+
+            @Override
+            public void savePage(int page, List<String> items) {
+                saved.add(page);
+            }
+        };
+    }
+}
@@ -0,0 +1,139 @@
+package com.rsmartin.arquitecturamvvm.repository;
+
+import com.rsmartin.arquitecturamvvm.AppExecutors;
+import com.rsmartin.arquitecturamvvm.db.GitHubDb;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Lotes de WriteBehindQueue: una transaccion por lote y, si falla, cada escritura por separado.
+ *
+ * GitHubDb es un mock con una "tabla" en memoria que se deshace si la transaccion no se marca
+ * como buena, igual que haria Room. Todos los executors son directos salvo scheduler (mock),
+ * asi que los lotes se escriben al llenarse.
+ */
+public class WriteBehindQueueTest {
+
+    private static final int BATCH = 3;
+
+    private final GitHubDb db = mock(GitHubDb.class);
+    private final ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+    private final AppExecutors appExecutors = new AppExecutors(Runnable::run, Runnable::run,
+            Runnable::run, Runnable::run, scheduler);
+    private final WriteBehindQueue queue = new WriteBehindQueue(db, appExecutors, 50, BATCH);
+
+    private final List<String> rows = new ArrayList<>();
+    private final List<String> committed = new ArrayList<>(); //afterCommit
+    private final Throwable[] errors = new Throwable[BATCH];
+    private final boolean[] done = new boolean[BATCH];
+
+    @Before
+    public void setUp() {
+        List<String> snapshot = new ArrayList<>();
+        boolean[] successful = {false};
+        doAnswer(invocation -> {
+            snapshot.clear();
+            snapshot.addAll(rows);
+            successful[0] = false;
+            return null;
+        }).when(db).beginTransaction();
+        doAnswer(invocation -> {
+            successful[0] = true;
+            return null;
+        }).when(db).setTransactionSuccessful();
+        doAnswer(invocation -> {
+            if(!successful[0]){ //Rollback
+                rows.clear();
+                rows.addAll(snapshot);
+            }
+            return null;
+        }).when(db).endTransaction();
+    }
+
+    @Test
+    public void fullBatchIsOneTransaction() {
+        enqueue(0, "one", false);
+        enqueue(1, "two", false);
+        enqueue(2, "three", false);
+
+        verify(db, times(1)).beginTransaction();
+        assertEquals(Arrays.asList("one", "two", "three"), rows);
+        assertEquals(Arrays.asList("one", "two", "three"), committed);
+        for(int i = 0; i < BATCH; i++){
+            assertTrue(done[i]);
+            assertNull(errors[i]);
+        }
+    }
+
+    @Test
+    public void failedBatchIsRolledBackAndRetriedOneByOne() {
+        enqueue(0, "one", false);
+        enqueue(1, "bad", true);
+        enqueue(2, "three", false);
+
+        // El lote entero y luego cada escritura en su transaccion
+        verify(db, times(1 + BATCH)).beginTransaction();
+        assertEquals(Arrays.asList("one", "three"), rows); //Nada de "bad", ni duplicados
+        assertEquals(Arrays.asList("one", "three"), committed);
+        assertNull(errors[0]);
+        assertEquals(IllegalStateException.class, errors[1].getClass());
+        assertEquals("bad", errors[1].getMessage());
+        assertNull(errors[2]);
+        for(int i = 0; i < BATCH; i++){
+            assertTrue(done[i]);
+        }
+    }
+
+    @Test
+    public void firstWriteOpensTheWindow() {
+        enqueue(0, "one", false);
+        enqueue(1, "two", false);
+
+        verify(scheduler, times(1)).schedule(any(Runnable.class), eq(50L), eq(TimeUnit.MILLISECONDS));
+        verify(db, times(0)).beginTransaction(); //Esperando a la ventana
+        assertFalse(done[0]);
+    }
+
+    @Test
+    public void errorReachesOnlyItsWrite() {
+        RuntimeException failure = new IllegalStateException("bad");
+        queue.enqueue(() -> rows.add("one"), null, error -> errors[0] = error);
+        queue.enqueue(() -> { throw failure; }, null, error -> errors[1] = error);
+        queue.enqueue(() -> rows.add("three"), null, error -> errors[2] = error);
+
+        assertNull(errors[0]);
+        assertSame(failure, errors[1]);
+        assertNull(errors[2]);
+    }
+
+    private void enqueue(int index, String row, boolean fails){
+        queue.enqueue(() -> {
+            if(fails){
+                throw new IllegalStateException(row);
+            }
+            rows.add(row);
+        }, () -> committed.add(row), error -> {
+            done[index] = true;
+            errors[index] = error;
+        });
+    }
+}
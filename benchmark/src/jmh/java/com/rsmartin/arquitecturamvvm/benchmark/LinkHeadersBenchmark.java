@@ -0,0 +1,40 @@
+package com.rsmartin.arquitecturamvvm.benchmark;
+
+import com.rsmartin.arquitecturamvvm.api.LinkHeaders;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+
+/**
+ * Lo que hace ApiResponse con cada respuesta: leer el header Link y sacar las paginas
+ * de "next" y "last" (PaginatedFetcher usa last para saber cuantas quedan).
+ */
+@State(Scope.Benchmark)
+public class LinkHeadersBenchmark {
+
+    private static final String LINK_HEADER =
+            "<https://api.github.com/search/repositories?q=android&page=3>; rel=\"next\", "
+            + "<https://api.github.com/search/repositories?q=android&page=34>; rel=\"last\", "
+            + "<https://api.github.com/search/repositories?q=android&page=1>; rel=\"first\", "
+            + "<https://api.github.com/search/repositories?q=android&page=1>; rel=\"prev\"";
+
+    private final Map<String, String> links = LinkHeaders.parse(LINK_HEADER);
+
+    @Benchmark
+    public Map<String, String> parseLinks(){
+        return LinkHeaders.parse(LINK_HEADER);
+    }
+
+    @Benchmark
+    public Integer nextPage(){
+        return LinkHeaders.pageOf(links.get("next"));
+    }
+
+    @Benchmark
+    public Integer parseAndNextPage(){
+        return LinkHeaders.pageOf(LinkHeaders.parse(LINK_HEADER).get("next"));
+    }
+}
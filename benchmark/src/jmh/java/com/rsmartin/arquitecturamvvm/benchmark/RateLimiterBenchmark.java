@@ -0,0 +1,42 @@
+package com.rsmartin.arquitecturamvvm.benchmark;
+
+import com.rsmartin.arquitecturamvvm.utils.RateLimiter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * shouldFetch desde 4 hilos a la vez sobre el mismo RateLimiter, con pocas claves muy
+ * repetidas y con muchas claves distintas (pasando de maxKeys).
+ */
+@State(Scope.Benchmark)
+@Threads(4)
+public class RateLimiterBenchmark {
+
+    @Param({"16", "20000"})
+    public int keys;
+
+    private RateLimiter<String> rateLimiter;
+    private String[] keyNames;
+
+    @Setup
+    public void setUp(){
+        rateLimiter = new RateLimiter<>(10, TimeUnit.MINUTES);
+        keyNames = new String[keys];
+        for(int i = 0; i < keys; i++){
+            keyNames[i] = "repos/user" + i;
+        }
+    }
+
+    @Benchmark
+    public boolean shouldFetch(){
+        return rateLimiter.shouldFetch(keyNames[ThreadLocalRandom.current().nextInt(keys)]);
+    }
+}
@@ -0,0 +1,63 @@
+package com.rsmartin.arquitecturamvvm.benchmark;
+
+import com.google.gson.Gson;
+import com.rsmartin.arquitecturamvvm.api.RepoStreamParser;
+import com.rsmartin.arquitecturamvvm.model.Repo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+
+/**
+ * RepoStreamParser.parse con los dos cuerpos que lee la app: el de search/repositories
+ * (objeto con total_count e items) y el de users/{login}/repos (array). Mismo tamaño de trozo
+ * que RepoRepository. Cada llamada crea el ResponseBody porque parse lo consume.
+ */
+@State(Scope.Benchmark)
+public class RepoStreamParserBenchmark {
+
+    private static final MediaType JSON = MediaType.parse("application/json");
+    private static final int CHUNK_SIZE = 50;
+
+    @Param({"30", "100", "1000"})
+    public int size;
+
+    private final Gson gson = new Gson();
+    private final RepoStreamParser parser = new RepoStreamParser(gson, CHUNK_SIZE);
+    private byte[] searchBody;
+    private byte[] listBody;
+
+    @Setup
+    public void setUp(){
+        List<Repo> repos = new ArrayList<>(size);
+        for(int i = 0; i < size; i++){
+            repos.add(new Repo(i, "repo" + i, "owner/repo" + i, "description of repo " + i, i,
+                    new Repo.Owner("owner", "https://api.github.com/users/owner")));
+        }
+        String items = gson.toJson(repos);
+        listBody = items.getBytes(StandardCharsets.UTF_8);
+        searchBody = ("{\"total_count\":" + size + ",\"incomplete_results\":false,\"items\":" + items + "}")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public RepoStreamParser.Result parseSearch(Blackhole blackhole) throws IOException {
+        return parser.parse(ResponseBody.create(JSON, searchBody), (repos, totalCount) -> blackhole.consume(repos));
+    }
+
+    @Benchmark
+    public RepoStreamParser.Result parseList(Blackhole blackhole) throws IOException {
+        return parser.parse(ResponseBody.create(JSON, listBody), (repos, totalCount) -> blackhole.consume(repos));
+    }
+}
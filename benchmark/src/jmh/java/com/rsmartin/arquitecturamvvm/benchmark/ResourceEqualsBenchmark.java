@@ -0,0 +1,68 @@
+package com.rsmartin.arquitecturamvvm.benchmark;
+
+import com.rsmartin.arquitecturamvvm.model.Repo;
+import com.rsmartin.arquitecturamvvm.repository.Resource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resource.equals tal y como lo usa NetworkBoundResource.setValue con listas grandes:
+ * - sameList: la misma lista con otro status (lo normal, de LOADING a SUCCESS).
+ * - equalCopy: otra lista con las mismas filas (Room al releer), hay que recorrerla entera.
+ * - changedLast: otra lista que solo cambia en el ultimo repo, el peor caso para equals.
+ * - hashList: lo que cuesta el hash de DistinctLiveData sobre la misma lista.
+ */
+@State(Scope.Benchmark)
+public class ResourceEqualsBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int size;
+
+    private List<Repo> repos;
+    private List<Repo> copy;
+    private List<Repo> changed;
+
+    @Setup
+    public void setUp(){
+        repos = repos(size, 0);
+        copy = repos(size, 0);
+        changed = repos(size, 1);
+    }
+
+    @Benchmark
+    public boolean sameList(){
+        return Resource.loading(repos).equals(Resource.success(repos));
+    }
+
+    @Benchmark
+    public boolean equalCopy(){
+        return Resource.success(repos).equals(Resource.success(copy));
+    }
+
+    @Benchmark
+    public boolean changedLast(){
+        return Resource.success(repos).equals(Resource.success(changed));
+    }
+
+    @Benchmark
+    public int hashList(){
+        return repos.hashCode();
+    }
+
+    private static List<Repo> repos(int size, int lastStars){
+        List<Repo> list = new ArrayList<>(size);
+        for(int i = 0; i < size; i++){
+            int stars = i == size - 1 ? lastStars : 0;
+            list.add(new Repo(i, "repo" + i, "owner/repo" + i, "description", stars,
+                    new Repo.Owner("owner", null)));
+        }
+        return list;
+    }
+}